@@ -9,6 +9,15 @@ repositories {
     mavenCentral()
 }
 
+// Замеры времени отдельно от тестов: ./gradlew benchmark -Pbenchmark=ex2.model.MyersDiffBenchmark
+val benchmark: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[benchmark.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[benchmark.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
 dependencies {
     implementation("mysql:mysql-connector-java:8.0.33")
     implementation("org.apache.poi:poi:5.2.4")
@@ -23,6 +32,13 @@ tasks.test {
     useJUnitPlatform()
 }
 
+tasks.register<JavaExec>("benchmark") {
+    group = "verification"
+    description = "Запускает замер: класс с main из -Pbenchmark=<класс>."
+    classpath = benchmark.runtimeClasspath
+    mainClass.set(providers.gradleProperty("benchmark"))
+}
+
 tasks.withType<JavaCompile> {
     options.encoding = "UTF-8"
 }
@@ -0,0 +1,82 @@
+package ex2.model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Время MyersDiff на длинных строках: почти одинаковых (O(ND) при малом D) и полностью разных
+// (ограничение стоимости и бюджет работы держат время линейным). Выводится медиана прогонов.
+// Запуск: ./gradlew benchmark -Pbenchmark=ex2.model.MyersDiffBenchmark
+final class MyersDiffBenchmark {
+    private static final int[] LENGTHS = {200_000, 1_000_000};
+    private static final int CHANGES = 100;
+    private static final int WARMUP = 3;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        for (int length : LENGTHS) {
+            Random random = new Random(length);
+            String text = randomText(random, length, 'a', 'z');
+            StringBuilder changed = new StringBuilder(text);
+            for (int i = 0; i < CHANGES; ++i) {
+                int position = random.nextInt(length);
+                changed.setCharAt(position, Character.toUpperCase(changed.charAt(position)));
+            }
+
+            measure("почти одинаковые", text, changed.toString(), MyersDiff.Granularity.CHARACTERS);
+            measure(
+                "полностью разные",
+                randomText(random, length, 'a', 'm'),
+                randomText(random, length, 'n', 'z'),
+                MyersDiff.Granularity.CHARACTERS
+            );
+
+            String words = words(random, length);
+            int boundary = words.indexOf(' ', length / 2);
+            measure(
+                "почти одинаковые, по словам",
+                words,
+                words.substring(0, boundary) + " вставка" + words.substring(boundary),
+                MyersDiff.Granularity.WORDS
+            );
+        }
+    }
+
+    private static void measure(String name, String first, String second, MyersDiff.Granularity granularity) {
+        for (int i = 0; i < WARMUP; ++i) {
+            MyersDiff.diff(first, second, granularity);
+        }
+
+        long[] nanos = new long[ROUNDS];
+        int edits = 0;
+        for (int i = 0; i < ROUNDS; ++i) {
+            long started = System.nanoTime();
+            edits = MyersDiff.diff(first, second, granularity).size();
+            nanos[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(nanos);
+
+        System.out.printf(
+            "%-28s %,10d символов: %8.1f мс (правок: %d)%n",
+            name,
+            first.length(),
+            nanos[ROUNDS / 2] / 1e6,
+            edits
+        );
+    }
+
+    private static String words(Random random, int length) {
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            text.append(randomText(random, 1 + random.nextInt(8), 'a', 'f')).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static String randomText(Random random, int length, char from, char to) {
+        char[] text = new char[length];
+        for (int i = 0; i < length; ++i) {
+            text[i] = (char) (from + random.nextInt(to - from + 1));
+        }
+        return new String(text);
+    }
+}
@@ -0,0 +1,71 @@
+package ex4.model;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Consumer;
+
+// CaseConverter против String.toLowerCase/toUpperCase на ASCII, кириллице и смешанном тексте.
+// Выводится медиана прогонов. Запуск: ./gradlew benchmark -Pbenchmark=ex4.model.CaseConverterBenchmark
+final class CaseConverterBenchmark {
+    private static final int LENGTH = 10_000;
+    private static final int WARMUP = 2_000;
+    private static final int ROUNDS = 11;
+    private static final int CALLS_PER_ROUND = 500;
+    private static final String ASCII = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 .,";
+    private static final String CYRILLIC = "абвгдеёжзийклмнопрстуфхцчшщъыьэюяАБВГДЕЁЖЗИЙКЛМНОПРСТУФХЦЧШЩЪЫЬЭЮЯ ";
+    // Latin-1 и расширенная кириллица без символов, которые уходят в String (µ, ß, ÿ).
+    private static final String MIXED = ASCII + CYRILLIC + "ÀÉÎõüñЀЂЄІЇЎЏѐђєіїўџ";
+
+    public static void main(String[] args) {
+        measure("ASCII", text(ASCII, 1));
+        measure("кириллица", text(CYRILLIC, 2));
+        measure("смешанный", text(MIXED, 3));
+        measure("с ß (через String)", text(MIXED + "ß", 4));
+    }
+
+    private static void measure(String name, String text) {
+        CaseConverter converter = new CaseConverter();
+        Locale locale = Locale.getDefault();
+
+        double converterMicros = median(text, converter::convert);
+        double stringMicros = median(text, str -> {
+            str.toLowerCase(locale);
+            str.toUpperCase(locale);
+        });
+
+        System.out.printf(
+            "%-20s CaseConverter %7.1f мкс, String %7.1f мкс на %d символов%n",
+            name,
+            converterMicros,
+            stringMicros,
+            text.length()
+        );
+    }
+
+    private static double median(String text, Consumer<String> conversion) {
+        for (int i = 0; i < WARMUP; ++i) {
+            conversion.accept(text);
+        }
+
+        long[] nanos = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; ++round) {
+            long started = System.nanoTime();
+            for (int i = 0; i < CALLS_PER_ROUND; ++i) {
+                conversion.accept(text);
+            }
+            nanos[round] = System.nanoTime() - started;
+        }
+        Arrays.sort(nanos);
+        return nanos[ROUNDS / 2] / 1e3 / CALLS_PER_ROUND;
+    }
+
+    private static String text(String alphabet, long seed) {
+        Random random = new Random(seed);
+        char[] text = new char[LENGTH];
+        for (int i = 0; i < LENGTH; ++i) {
+            text[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(text);
+    }
+}
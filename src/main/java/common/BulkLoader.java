@@ -0,0 +1,168 @@
+package common;
+
+import com.mysql.cj.jdbc.JdbcStatement;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Массовая загрузка строк через LOAD DATA LOCAL INFILE (-Dsql.bulk=true). Строки кодируются
+// в TSV в памяти и передаются драйверу как InputStream (setLocalInfileInputStream), без
+// временных файлов; каждая загрузка — до ROWS_PER_LOAD строк в своей транзакции. Загрузка
+// получает id подряд начиная с LAST_INSERT_ID, если в таблицу в это время не пишут другие
+// сеансы (или innodb_autoinc_lock_mode не больше 1); диапазоны id загрузок возвращает loaded().
+public final class BulkLoader implements AutoCloseable {
+    public static final String PROPERTY = "sql.bulk";
+    private static final int ROWS_PER_LOAD = 10_000;
+    private static final int MAX_BUFFER_BYTES = 16 << 20;
+
+    // Строки с номерами firstRow..firstRow+rows-1 получили id firstId..firstId+rows-1.
+    public record Loaded(long firstRow, long firstId, int rows) { }
+
+    private final Connection connection;
+    private final String query;
+    private final int columns;
+    private final Buffer buffer = new Buffer();
+    private final Writer writer = new OutputStreamWriter(buffer, StandardCharsets.UTF_8);
+    private final ArrayList<Loaded> loaded = new ArrayList<>();
+    private int bufferedRows = 0;
+    private long rows = 0;
+
+    public BulkLoader(Connection connection, String table, List<String> columns) {
+        StringBuilder names = new StringBuilder();
+        for (String column : columns) {
+            if (!names.isEmpty()) {
+                names.append(", ");
+            }
+            names.append('`').append(column).append('`');
+        }
+
+        this.connection = connection;
+        this.columns = columns.size();
+        this.query = "LOAD DATA LOCAL INFILE 'stream' INTO TABLE `" + table + "` CHARACTER SET utf8mb4 ("
+            + names + ")";
+    }
+
+    public static boolean enabled() {
+        return Boolean.getBoolean(PROPERTY);
+    }
+
+    public void add(Object[] values) throws SQLException {
+        if (values.length != columns) {
+            throw new IllegalArgumentException("Ожидалось значений: " + columns + ", передано: " + values.length + ".");
+        }
+
+        try {
+            for (int i = 0; i < values.length; ++i) {
+                if (i > 0) {
+                    writer.write('\t');
+                }
+                writeValue(values[i]);
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        ++rows;
+        if (++bufferedRows == ROWS_PER_LOAD || buffer.size() >= MAX_BUFFER_BYTES) {
+            flush();
+        }
+    }
+
+    // Загрузки в порядке выполнения; строки нумеруются с нуля в порядке add.
+    public List<Loaded> loaded() {
+        return List.copyOf(loaded);
+    }
+
+    public void flush() throws SQLException {
+        if (bufferedRows == 0) {
+            return;
+        }
+
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        long started = System.nanoTime();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+
+        try (Statement statement = connection.createStatement()) {
+            JdbcStatement mysqlStatement = statement.unwrap(JdbcStatement.class);
+            mysqlStatement.setLocalInfileInputStream(buffer.toInputStream());
+
+            int inserted = statement.executeUpdate(query);
+            if (inserted != bufferedRows) {
+                throw new SQLException("Загружено строк: " + inserted + " из " + bufferedRows + ".");
+            }
+            long firstId = mysqlStatement.getLastInsertID();
+            connection.commit();
+
+            loaded.add(new Loaded(rows - bufferedRows, firstId, bufferedRows));
+            RuntimeStatistics.inserted(bufferedRows, System.nanoTime() - started);
+        } catch (SQLException e) {
+            connection.rollback();
+            System.err.println("Не удалось загрузить строки через LOAD DATA LOCAL INFILE.");
+            System.err.println("Сообщение: " + e.getMessage());
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+            buffer.reset();
+            bufferedRows = 0;
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        flush();
+    }
+
+    // Формат LOAD DATA по умолчанию: NULL — \N, спецсимволы экранируются обратной косой чертой.
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            writer.write("\\N");
+            return;
+        }
+        if (value instanceof Boolean bool) {
+            writer.write(bool ? '1' : '0');
+            return;
+        }
+
+        CharSequence text = value instanceof CharSequence sequence ? sequence : value.toString();
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\t' -> writer.write("\\t");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\0' -> writer.write("\\0");
+                case '\\' -> writer.write("\\\\");
+                default -> writer.write(c);
+            }
+        }
+    }
+
+    // Отдает накопленные байты драйверу без копирования массива.
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(1 << 16);
+        }
+
+        InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+}
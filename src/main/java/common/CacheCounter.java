@@ -0,0 +1,33 @@
+package common;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Попадания и промахи одного кэша; счетчики LongAdder не мешают друг другу между потоками.
+public final class CacheCounter {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    CacheCounter() { }
+
+    public void hit() {
+        hits.increment();
+    }
+
+    public void miss() {
+        misses.increment();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public double hitRate() {
+        long hits = hits();
+        long lookups = hits + misses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
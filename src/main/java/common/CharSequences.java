@@ -0,0 +1,86 @@
+package common;
+
+import java.util.Arrays;
+
+public final class CharSequences {
+    private CharSequences() { }
+
+    public static void getChars(CharSequence source, int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+        if (source instanceof String str) {
+            str.getChars(srcBegin, srcEnd, dst, dstBegin);
+        } else if (source instanceof ChunkedText chunked) {
+            chunked.getChars(srcBegin, srcEnd, dst, dstBegin);
+        } else {
+            for (int i = srcBegin; i < srcEnd; ++i) {
+                dst[dstBegin++] = source.charAt(i);
+            }
+        }
+    }
+
+    public static int indexOf(CharSequence text, CharSequence pattern) {
+        if (text instanceof String str && pattern instanceof String search) {
+            return str.indexOf(search);
+        }
+
+        int patternLength = pattern.length();
+        if (patternLength == 0) {
+            return 0;
+        }
+
+        if (text instanceof ChunkedText chunked) {
+            return indexOfChunked(chunked, pattern.toString());
+        }
+
+        char first = pattern.charAt(0);
+        int last = text.length() - patternLength;
+        for (int i = 0; i <= last; ++i) {
+            if (text.charAt(i) == first && regionMatches(text, i, pattern, patternLength)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Текст читается окнами, соседние окна перекрываются на длину образца без одного
+    // символа, поэтому вхождение на стыке не теряется, а charAt не вызывается посимвольно.
+    private static int indexOfChunked(ChunkedText text, String pattern) {
+        int patternLength = pattern.length();
+        int length = text.length();
+        char[] window = new char[ChunkedText.CHUNK_SIZE + patternLength - 1];
+        char[] search = pattern.toCharArray();
+        char first = search[0];
+
+        for (int from = 0; from <= length - patternLength; from += ChunkedText.CHUNK_SIZE) {
+            int count = Math.min(window.length, length - from);
+            text.getChars(from, from + count, window, 0);
+
+            int last = count - patternLength;
+            for (int i = 0; i <= last; ++i) {
+                if (window[i] == first
+                    && Arrays.equals(window, i, i + patternLength, search, 0, patternLength)
+                ) {
+                    return from + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    public static boolean endsWith(CharSequence text, CharSequence suffix) {
+        if (text instanceof String str && suffix instanceof String search) {
+            return str.endsWith(search);
+        }
+
+        int offset = text.length() - suffix.length();
+        return offset >= 0 && regionMatches(text, offset, suffix, suffix.length());
+    }
+
+    private static boolean regionMatches(CharSequence text, int offset, CharSequence pattern, int length) {
+        for (int j = 0; j < length; ++j) {
+            if (text.charAt(offset + j) != pattern.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,42 @@
+package common;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+// Текст, который умеет отдавать содержимое кусками: вывод в консоль и передача в JDBC
+// идут через буфер фиксированного размера, без сборки всей строки в куче.
+public interface ChunkedText extends CharSequence {
+    int CHUNK_SIZE = 8192;
+
+    void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin);
+
+    default void writeTo(Appendable out) throws IOException {
+        char[] buffer = new char[Math.min(CHUNK_SIZE, Math.max(1, length()))];
+        for (int from = 0; from < length(); from += buffer.length) {
+            int to = Math.min(from + buffer.length, length());
+            getChars(from, to, buffer, 0);
+            out.append(CharBuffer.wrap(buffer, 0, to - from));
+        }
+    }
+
+    default Reader reader() {
+        return new Reader() {
+            private int position = 0;
+
+            @Override
+            public int read(char[] buffer, int off, int len) {
+                if (position >= length()) {
+                    return -1;
+                }
+                int count = Math.min(len, length() - position);
+                getChars(position, position + count, buffer, off);
+                position += count;
+                return count;
+            }
+
+            @Override
+            public void close() { }
+        };
+    }
+}
@@ -2,23 +2,32 @@ package common;
 
 import com.mysql.cj.jdbc.Driver;
 
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.regex.Pattern;
 import static common.Model.IO;
 
 public class Control<E extends Model> {
-    private Connection connection_ = null;
+    private volatile Connection connection_ = null;
     private final E model_;
     private static final Pattern DB_NAME_PATTERN = Pattern.compile("^[A-Za-z][A-Za-z0-9_]{0,62}$");
 
     public Control(E model) throws RuntimeException {
         try {
-            System.setOut(new PrintStream(System.out, true, StandardCharsets.UTF_8));
-            System.setErr(new PrintStream(System.err, true, StandardCharsets.UTF_8));
+            System.setErr(new PrintStream(stderrAfterStdout(), true, StandardCharsets.UTF_8));
 
             DriverManager.registerDriver(new Driver());
         } catch (Exception e) {
@@ -27,36 +36,209 @@ public class Control<E extends Model> {
         }
 
         model_ = model;
+        RuntimeStatistics.register(model, () -> connection_);
 
         IO.println("Драйвер успешно зарегистрирован.");
         IO.println("Ваша модель: " + model.getDescribeMessage());
     }
 
+    // Вывод в IO буферизован: перед сообщением об ошибке он сбрасывается, чтобы строки
+    // stdout и stderr шли в том же порядке, что и раньше.
+    private static OutputStream stderrAfterStdout() {
+        return new FilterOutputStream(new FileOutputStream(FileDescriptor.err)) {
+            @Override
+            public void write(int b) throws IOException {
+                IO.flush();
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                IO.flush();
+                out.write(b, off, len);
+            }
+        };
+    }
+
     public void connectToLocalDb() {
         while (connection_ == null) {
             String dbName = readSafeDatabaseName();
-            String dbUrl = "jdbc:mysql://localhost/" + dbName;
+            // Подготовленные запросы разбираются сервером один раз и переиспользуются (StatementCache);
+            // LOAD DATA LOCAL разрешается только при включенной массовой загрузке (BulkLoader).
+            String dbUrl = "jdbc:mysql://localhost/" + dbName + "?useServerPrepStmts=true"
+                + (BulkLoader.enabled() ? "&allowLoadLocalInfile=true" : "");
 
             String username = IO.readln("Имя пользователя: ");
             String password = IO.readln("Пароль: ");
 
             try {
-                connection_ = DriverManager.getConnection(dbUrl, username, password);
+                connection_ = Telemetry.instrument(
+                    SlowSqlLog.wrap(DriverManager.getConnection(dbUrl, username, password))
+                );
+                if (model_.groupCommit()) {
+                    openWriterConnection(dbUrl, username, password);
+                }
             } catch (SQLException e) {
                 IO.println("\nОшибка входа. Попробуйте еще раз.");
             }
         }
 
         IO.println("\nВы успешно подключились к БД.");
+        model_.recoverPendingWrites(connection_);
     }
 
+    // Групповая фиксация идет через отдельное подключение; без него значения пишутся с автокоммитом.
+    private void openWriterConnection(String dbUrl, String username, String password) {
+        try {
+            model_.useWriterConnection(Telemetry.instrument(
+                SlowSqlLog.wrap(DriverManager.getConnection(dbUrl, username, password))
+            ));
+        } catch (SQLException e) {
+            System.err.println("Не удалось открыть подключение для групповой фиксации, значения пишутся с автокоммитом.");
+            System.err.println("Сообщение: " + e.getMessage());
+        }
+    }
+
+    // Сеанс можно записать (-Dsession.record=<файл>) и затем воспроизвести без участия
+    // пользователя (-Dsession.replay=<файл>); подключение к БД в сценарий не входит.
+    // При завершении дожидается фоновой записи результатов и выводит статистику
+    // производительности по всем выполненным командам.
     public void handleCommands() throws RuntimeException {
+        try {
+            handleSession();
+        } finally {
+            model_.awaitPendingWrites();
+            model_.closeSession();
+            Telemetry.showReport();
+            IO.flush();
+        }
+    }
+
+    private void handleSession() throws RuntimeException {
+        SessionScript session = openSession();
+        if (session == null) {
+            runCommands(null);
+            return;
+        }
+
+        LinkedHashMap<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+        long started = System.nanoTime();
+        IO.attach(session);
+
+        try {
+            runCommands(latencies);
+        } catch (NoSuchElementException e) {
+            if (!session.replaying()) {
+                throw e;
+            }
+        } finally {
+            IO.detach();
+            try {
+                session.close();
+            } catch (IOException e) {
+                System.err.println("Не удалось сохранить сценарий сеанса.");
+            }
+        }
+
+        if (session.replaying()) {
+            showReplayReport(session, latencies, System.nanoTime() - started);
+        } else {
+            IO.println("\nСценарий сеанса записан: " + System.getProperty(SessionScript.RECORD_PROPERTY));
+        }
+    }
+
+    private void runCommands(Map<String, LatencyHistogram> latencies) {
         do {
             model_.showCommands();
-            model_.runCommandWithConnection(model_.readCommand(), connection_);
+            IO.println("0. Показать статистику производительности.");
+            String command = model_.readCommand();
+
+            if (command.trim().equals("0")) {
+                Telemetry.showReport();
+                continue;
+            }
+
+            long started = System.nanoTime();
+            FlightEvents.CommandEvent event = new FlightEvents.CommandEvent();
+            event.begin();
+            Telemetry.beginCommand(command);
+            try {
+                model_.runCommandWithConnection(command, connection_);
+            } finally {
+                long elapsed = System.nanoTime() - started;
+                Telemetry.endCommand(elapsed);
+                RuntimeStatistics.commandExecuted();
+                event.finish(model_.getClass().getSimpleName(), command.trim());
+
+                if (latencies != null) {
+                    latencies.computeIfAbsent(command.trim(), key -> new LatencyHistogram())
+                        .record(elapsed);
+                }
+            }
         } while (needContinue());
     }
 
+    private SessionScript openSession() throws RuntimeException {
+        String recordPath = System.getProperty(SessionScript.RECORD_PROPERTY);
+        String replayPath = System.getProperty(SessionScript.REPLAY_PROPERTY);
+
+        if (recordPath != null && replayPath != null) {
+            throw new IllegalArgumentException("Запись и воспроизведение сеанса нельзя включить одновременно.");
+        }
+
+        try {
+            if (recordPath != null) {
+                return SessionScript.record(Path.of(recordPath));
+            }
+            if (replayPath != null) {
+                SessionScript script = SessionScript.replay(Path.of(replayPath));
+                IO.println("\nВоспроизведение сценария " + replayPath + " (ответов: " + script.size() + ")...");
+                return script;
+            }
+        } catch (IOException | InvalidPathException e) {
+            System.err.println("Невозможно открыть сценарий сеанса.");
+            throw new RuntimeException(e);
+        }
+
+        return null;
+    }
+
+    private static void showReplayReport(
+        SessionScript session,
+        Map<String, LatencyHistogram> latencies,
+        long elapsedNanos
+    ) {
+        long commands = 0;
+        for (LatencyHistogram histogram : latencies.values()) {
+            commands += histogram.count();
+        }
+
+        IO.println("\nСценарий воспроизведен.");
+        IO.println(String.format(
+            "Команд: %d за %.1f мс (%.1f команд/с); в записи пользователь думал %.1f с.",
+            commands,
+            elapsedNanos / 1e6,
+            commands * 1e9 / Math.max(1, elapsedNanos),
+            session.recordedThinkMillis() / 1e3
+        ));
+        IO.println(String.format(
+            "%-8s %8s %12s %12s %12s %12s", "команда", "число", "среднее, мс", "p50, мс", "p99, мс", "макс, мс"
+        ));
+
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            IO.println(String.format(
+                "%-8s %8d %12.3f %12.3f %12.3f %12.3f",
+                entry.getKey(),
+                histogram.count(),
+                histogram.mean() / 1e6,
+                histogram.percentile(0.50) / 1e6,
+                histogram.percentile(0.99) / 1e6,
+                histogram.max() / 1e6
+            ));
+        }
+    }
+
     private String readSafeDatabaseName() {
         while (true) {
             String dbName = IO.readln("\nВведите название локальной схемы (БД) из MySQL: ").trim();
@@ -0,0 +1,115 @@
+package common;
+
+import java.io.IOException;
+
+// Описание сохраненного результата, которое собирается в текст только при выводе. Хранит
+// константные куски и ссылки на операнды и результаты (строки, тексты, числа); числа и
+// прочие значения превращаются в текст при обращении. Части не должны изменяться.
+public final class Description implements ChunkedText {
+    private static final int VALUE_LENGTH_ESTIMATE = 20;
+
+    private final Object[] parts;
+    private int length = -1;
+
+    private Description(Object[] parts) {
+        this.parts = parts;
+    }
+
+    public static Description of(Object... parts) {
+        return new Description(parts);
+    }
+
+    // Оценка длины без сборки текста: для чисел и прочих значений — VALUE_LENGTH_ESTIMATE символов.
+    // Не зависит от того, собирался ли текст, поэтому годится для учета добавления и вытеснения.
+    int estimatedLength() {
+        long total = 0;
+        for (Object part : parts) {
+            if (part instanceof Description description) {
+                total += description.estimatedLength();
+            } else if (part instanceof CharSequence text) {
+                total += text.length();
+            } else {
+                total += VALUE_LENGTH_ESTIMATE;
+            }
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int length() {
+        if (length < 0) {
+            int total = 0;
+            for (Object part : parts) {
+                total = Math.addExact(total, text(part).length());
+            }
+            length = total;
+        }
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        int offset = index;
+        for (Object part : parts) {
+            CharSequence text = text(part);
+            if (offset < text.length()) {
+                return text.charAt(offset);
+            }
+            offset -= text.length();
+        }
+        throw new IndexOutOfBoundsException(index);
+    }
+
+    @Override
+    public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+        int partStart = 0;
+        for (Object part : parts) {
+            if (srcBegin >= srcEnd) {
+                return;
+            }
+
+            CharSequence text = text(part);
+            int partEnd = partStart + text.length();
+            if (srcBegin < partEnd) {
+                int to = Math.min(srcEnd, partEnd);
+                CharSequences.getChars(text, srcBegin - partStart, to - partStart, dst, dstBegin);
+                dstBegin += to - srcBegin;
+                srcBegin = to;
+            }
+            partStart = partEnd;
+        }
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return Rope.of(this).subSequence(start, end);
+    }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        for (Object part : parts) {
+            if (part instanceof ChunkedText text) {
+                text.writeTo(out);
+            } else {
+                out.append(text(part));
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(length());
+        for (Object part : parts) {
+            text.append(text(part));
+        }
+        return text.toString();
+    }
+
+    private static CharSequence text(Object part) {
+        return part instanceof CharSequence text ? text : String.valueOf(part);
+    }
+}
@@ -0,0 +1,218 @@
+package common;
+
+import static common.Model.IO;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import javax.xml.parsers.ParserConfigurationException;
+
+// Импорт xlsx в таблицу без построения DOM: листы читаются событиями SAX (XSSFReader и
+// XSSFSheetXMLHandler), в памяти держится только текущая строка, пакет INSERT и таблица
+// общих строк книги. Первая строка листа — заголовки, они сопоставляются со столбцами
+// таблицы без учета регистра; лишние столбцы листа пропускаются. Вставка пачками по
+// INSERT_BATCH_SIZE строк, каждая пачка в своей транзакции.
+final class ExcelImport {
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    record Report(int sheets, int skippedSheets, long rows, long nanos) { }
+
+    private final Connection connection;
+    private final String table;
+    private final Map<String, String> columns;
+
+    // columns: заголовок в нижнем регистре -> имя столбца таблицы.
+    ExcelImport(Connection connection, String table, Map<String, String> columns) {
+        this.connection = connection;
+        this.table = table;
+        this.columns = columns;
+    }
+
+    Report run(Path file) throws IOException, SQLException {
+        long started = System.nanoTime();
+        int sheets = 0;
+        int skippedSheets = 0;
+        long rows = 0;
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+
+        try (OPCPackage workbook = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(workbook);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(workbook);
+            StylesTable styles = reader.getStylesTable();
+            // Числа форматируются без учета локали ("1234.5", а не "1234,5"), чтобы MySQL их разобрал.
+            DataFormatter formatter = new DataFormatter(Locale.ROOT);
+
+            XSSFReader.SheetIterator iterator = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (iterator.hasNext()) {
+                try (InputStream sheet = iterator.next()) {
+                    SheetRows handler = new SheetRows();
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, handler, formatter, false));
+                    try {
+                        parser.parse(new InputSource(sheet));
+                        handler.flush();
+                    } catch (RuntimeException e) {
+                        if (e.getCause() instanceof SQLException sqlException) {
+                            throw sqlException;
+                        }
+                        throw e;
+                    } finally {
+                        handler.close();
+                    }
+
+                    ++sheets;
+                    rows += handler.inserted;
+                    if (handler.statement == null) {
+                        ++skippedSheets;
+                        IO.println("Лист `" + iterator.getSheetName() + "` пропущен: нет столбцов таблицы `" + table + "`.");
+                    }
+                }
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Не удалось прочитать книгу: " + e.getMessage(), e);
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        return new Report(sheets, skippedSheets, rows, System.nanoTime() - started);
+    }
+
+    // Строки одного листа. Ошибки вставки выходят из обработчика SAX как RuntimeException.
+    private final class SheetRows implements SheetContentsHandler {
+        private final ArrayList<String> headers = new ArrayList<>();
+        private final HashMap<Integer, Integer> slots = new HashMap<>();
+        private Object[] values = null;
+        private PreparedStatement statement = null;
+        private boolean header = true;
+        private boolean empty = true;
+        private int pending = 0;
+        private long inserted = 0;
+        private long batchStarted = 0;
+
+        @Override
+        public void startRow(int rowNum) {
+            if (values != null) {
+                Arrays.fill(values, null);
+            }
+            empty = true;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            try {
+                if (header) {
+                    header = false;
+                    prepare();
+                } else if (statement != null && !empty) {
+                    add();
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            if (formattedValue == null || cellReference == null) {
+                return;
+            }
+            int column = new CellReference(cellReference).getCol();
+
+            if (header) {
+                String name = columns.get(formattedValue.trim().toLowerCase());
+                if (name != null && !headers.contains(name)) {
+                    slots.put(column, headers.size());
+                    headers.add(name);
+                }
+                return;
+            }
+
+            Integer slot = slots.get(column);
+            if (slot != null) {
+                values[slot] = formattedValue;
+                empty = false;
+            }
+        }
+
+        private void prepare() throws SQLException {
+            if (headers.isEmpty()) {
+                return;
+            }
+
+            StringBuilder names = new StringBuilder();
+            StringBuilder placeholders = new StringBuilder();
+            for (String name : headers) {
+                if (!names.isEmpty()) {
+                    names.append(", ");
+                    placeholders.append(", ");
+                }
+                names.append('`').append(name).append('`');
+                placeholders.append('?');
+            }
+
+            values = new Object[headers.size()];
+            statement = connection.prepareStatement(
+                "INSERT INTO `" + table + "` (" + names + ") VALUES (" + placeholders + ")"
+            );
+        }
+
+        private void add() throws SQLException {
+            if (pending == 0) {
+                batchStarted = System.nanoTime();
+            }
+            for (int i = 0; i < values.length; ++i) {
+                Model.bindValue(statement, i + 1, values[i]);
+            }
+            statement.addBatch();
+
+            if (++pending == INSERT_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() throws SQLException {
+            if (pending == 0) {
+                return;
+            }
+            statement.executeBatch();
+            connection.commit();
+            RuntimeStatistics.inserted(pending, System.nanoTime() - batchStarted);
+            inserted += pending;
+            pending = 0;
+        }
+
+        void close() throws SQLException {
+            if (statement != null) {
+                statement.close();
+            }
+        }
+    }
+}
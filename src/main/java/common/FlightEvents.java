@@ -0,0 +1,106 @@
+package common;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// События Java Flight Recorder. Без записи JFR begin/end/shouldCommit почти ничего не стоят,
+// а поля заполняются только для событий, которые действительно попадут в запись. Стек не
+// сохраняется: событие и так однозначно указывает на команду или таблицу.
+final class FlightEvents {
+    private static final String CATEGORY = "Korenkov";
+
+    private FlightEvents() { }
+
+    @Name("korenkov.Command")
+    @Label("Команда")
+    @Category({CATEGORY, "Команды"})
+    @StackTrace(false)
+    static final class CommandEvent extends Event {
+        @Label("Модель")
+        String model;
+
+        @Label("Команда")
+        String command;
+
+        void finish(String model, String command) {
+            end();
+            if (shouldCommit()) {
+                this.model = model;
+                this.command = command;
+                commit();
+            }
+        }
+    }
+
+    @Name("korenkov.Insert")
+    @Label("Вставка")
+    @Category({CATEGORY, "SQL"})
+    @StackTrace(false)
+    static final class InsertEvent extends Event {
+        @Label("Таблица")
+        String table;
+
+        @Label("Строк")
+        long rows;
+
+        void finish(String table, long rows) {
+            end();
+            if (shouldCommit()) {
+                this.table = table;
+                this.rows = rows;
+                commit();
+            }
+        }
+    }
+
+    @Name("korenkov.Metadata")
+    @Label("Получение метаданных")
+    @Category({CATEGORY, "SQL"})
+    @StackTrace(false)
+    static final class MetadataEvent extends Event {
+        @Label("Операция")
+        String operation;
+
+        @Label("Найдено таблиц")
+        int tables;
+
+        void finish(String operation, int tables) {
+            end();
+            if (shouldCommit()) {
+                this.operation = operation;
+                this.tables = tables;
+                commit();
+            }
+        }
+    }
+
+    @Name("korenkov.Export")
+    @Label("Экспорт в Excel")
+    @Category({CATEGORY, "Экспорт"})
+    @StackTrace(false)
+    static final class ExportEvent extends Event {
+        @Label("Таблица")
+        String table;
+
+        @Label("Строк")
+        long rows;
+
+        @Label("Размер файла")
+        @DataAmount
+        long bytes;
+
+        void finish(String table, long rows, long bytes) {
+            end();
+            if (shouldCommit()) {
+                this.table = table;
+                this.rows = rows;
+                this.bytes = bytes;
+                commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Текстовый файл, отображенный в память через FileChannel.map. ASCII-файл читается прямо
+// из отображения (символ = байт), прочий UTF-8 один раз декодируется во внекучевые
+// (direct) буферы. Подстроки — представления над теми же буферами, куча не используется.
+public final class MappedText implements ChunkedText {
+    private static final int SEGMENT_SHIFT = 28;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int UTF8_BOM_LENGTH = 3;
+    private static final int STAGING_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final ByteBuffer[] byteSegments;
+    private final CharBuffer[] charSegments;
+    private final int offset;
+    private final int length;
+
+    private MappedText(
+        Path path,
+        ByteBuffer[] byteSegments,
+        CharBuffer[] charSegments,
+        int offset,
+        int length
+    ) {
+        this.path = path;
+        this.byteSegments = byteSegments;
+        this.charSegments = charSegments;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static MappedText open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = hasUtf8Bom(channel) ? UTF8_BOM_LENGTH : 0;
+
+            if (size - start > Integer.MAX_VALUE) {
+                throw new IOException("Файл больше " + Integer.MAX_VALUE + " байт не поддерживается.");
+            }
+
+            ByteBuffer[] bytes = mapSegments(channel, start, size);
+            int byteLength = (int) (size - start);
+
+            if (isAscii(bytes)) {
+                return new MappedText(path, bytes, null, 0, trimLineEnd(bytes, null, byteLength));
+            }
+
+            CharBuffer[] chars = decode(bytes, byteLength);
+            int charLength = 0;
+            for (CharBuffer segment : chars) {
+                charLength += segment.limit();
+            }
+            return new MappedText(path, null, chars, 0, trimLineEnd(null, chars, charLength));
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public String describe() {
+        return "файл " + path.toAbsolutePath() + " (" + length + " символов)";
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return at(offset + index);
+    }
+
+    @Override
+    public MappedText subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException(
+                "begin " + start + ", end " + end + ", length " + length
+            );
+        }
+        return new MappedText(path, byteSegments, charSegments, offset + start, end - start);
+    }
+
+    @Override
+    public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+        int position = offset + srcBegin;
+        int end = offset + srcEnd;
+
+        while (position < end) {
+            int segment = position >>> SEGMENT_SHIFT;
+            int inSegment = position & SEGMENT_MASK;
+            int count = Math.min(end - position, SEGMENT_SIZE - inSegment);
+
+            if (charSegments != null) {
+                charSegments[segment].get(inSegment, dst, dstBegin, count);
+            } else {
+                ByteBuffer bytes = byteSegments[segment];
+                for (int i = 0; i < count; ++i) {
+                    dst[dstBegin + i] = (char) (bytes.get(inSegment + i) & 0xFF);
+                }
+            }
+
+            position += count;
+            dstBegin += count;
+        }
+    }
+
+    // Полная материализация в строку — только по явному запросу.
+    @Override
+    public String toString() {
+        char[] chars = new char[length];
+        getChars(0, length, chars, 0);
+        return new String(chars);
+    }
+
+    private char at(int position) {
+        int segment = position >>> SEGMENT_SHIFT;
+        if (charSegments != null) {
+            return charSegments[segment].get(position & SEGMENT_MASK);
+        }
+        return (char) (byteSegments[segment].get(position & SEGMENT_MASK) & 0xFF);
+    }
+
+    private static boolean hasUtf8Bom(FileChannel channel) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(UTF8_BOM_LENGTH);
+        channel.read(head, 0);
+        return head.position() == UTF8_BOM_LENGTH
+            && (head.get(0) & 0xFF) == 0xEF
+            && (head.get(1) & 0xFF) == 0xBB
+            && (head.get(2) & 0xFF) == 0xBF;
+    }
+
+    private static ByteBuffer[] mapSegments(FileChannel channel, long start, long size)
+        throws IOException
+    {
+        int count = (int) ((size - start + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        ByteBuffer[] segments = new ByteBuffer[count];
+
+        for (int i = 0; i < count; ++i) {
+            long from = start + (long) i * SEGMENT_SIZE;
+            long length = Math.min(SEGMENT_SIZE, size - from);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+        }
+
+        return segments;
+    }
+
+    private static boolean isAscii(ByteBuffer[] segments) {
+        for (ByteBuffer segment : segments) {
+            int bits = 0;
+            for (int i = 0; i < segment.limit(); ++i) {
+                bits |= segment.get(i);
+            }
+            if ((bits & 0x80) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Байты проходят через небольшие промежуточные буферы, а символы раскладываются по
+    // сегментам фиксированного размера: индекс символа делится на номер сегмента и
+    // смещение так же, как для байтового отображения. Символов в UTF-8 не больше, чем
+    // байтов, поэтому размер сегмента ограничивается оставшейся длиной файла.
+    private static CharBuffer[] decode(ByteBuffer[] bytes, int byteLength) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        CharBuffer[] chars = new CharBuffer[(int) Math.max(1, ((long) byteLength + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+        int used = 0;
+        long written = 0;
+
+        ByteBuffer input = ByteBuffer.allocate(STAGING_SIZE);
+        CharBuffer output = CharBuffer.allocate(STAGING_SIZE);
+
+        for (int i = 0; i <= bytes.length; ++i) {
+            boolean last = i == bytes.length;
+            ByteBuffer source = last ? ByteBuffer.allocate(0) : bytes[i].duplicate();
+
+            do {
+                while (input.hasRemaining() && source.hasRemaining()) {
+                    int count = Math.min(input.remaining(), source.remaining());
+                    ByteBuffer part = source.slice(source.position(), count);
+                    input.put(part);
+                    source.position(source.position() + count);
+                }
+
+                input.flip();
+                CoderResult result = decoder.decode(input, output, last);
+                input.compact();
+                if (last && !result.isOverflow()) {
+                    decoder.flush(output);
+                }
+
+                output.flip();
+                while (output.hasRemaining()) {
+                    int segment = (int) (written >>> SEGMENT_SHIFT);
+                    if (segment == used) {
+                        chars[used++] = allocateChars(byteLength - (long) segment * SEGMENT_SIZE);
+                    }
+                    CharBuffer target = chars[segment];
+                    int count = Math.min(output.remaining(), target.remaining());
+                    target.put(output.slice(output.position(), count));
+                    output.position(output.position() + count);
+                    written += count;
+                }
+                output.clear();
+            } while (source.hasRemaining() || (last && input.position() > 0));
+        }
+
+        CharBuffer[] result = new CharBuffer[Math.max(1, used)];
+        for (int i = 0; i < used; ++i) {
+            result[i] = chars[i].flip();
+        }
+        if (used == 0) {
+            result[0] = CharBuffer.allocate(0);
+        }
+        return result;
+    }
+
+    private static CharBuffer allocateChars(long remainingBytes) {
+        int capacity = (int) Math.max(1, Math.min(SEGMENT_SIZE, remainingBytes));
+        return ByteBuffer.allocateDirect(capacity * Character.BYTES).asCharBuffer();
+    }
+
+    private static int trimLineEnd(ByteBuffer[] bytes, CharBuffer[] chars, int length) {
+        MappedText probe = new MappedText(null, bytes, chars, 0, length);
+        if (length > 0 && probe.at(length - 1) == '\n') {
+            --length;
+            if (length > 0 && probe.at(length - 1) == '\r') {
+                --length;
+            }
+        }
+        return length;
+    }
+}
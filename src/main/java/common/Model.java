@@ -5,17 +5,41 @@ import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Pattern;
 
 public abstract class Model {
-    protected final ArrayList<SavedQuery> savedQueries_ = new ArrayList<>();
+    protected final SessionHistory savedQueries_ = new SessionHistory(getClass().getSimpleName());
+    private final ResultWriter resultWriter_ = new ResultWriter();
+    private WriteAheadLog journal_ = null;
+    private Connection sessionConnection_ = null;
+    private StatementCache statements_ = null;
+    private Connection writerConnection_ = null;
+    private static final int STATEMENT_CACHE_SIZE = 16;
+    private static final List<String> RESULT_COLUMNS = List.of("result");
     private static final Pattern IDENTIFIER_PATTERN = Pattern.compile("^[A-Za-z][A-Za-z0-9_]{0,62}$");
     private static final Set<String> ALLOWED_RESULT_COLUMN_TYPES = Set.of(
         "CHAR", "VARCHAR", "TEXT", "TINYTEXT", "MEDIUMTEXT", "LONGTEXT",
@@ -26,14 +50,44 @@ public abstract class Model {
         "BIGINT", "INT", "INTEGER", "SMALLINT", "MEDIUMINT", "TINYINT"
     );
 
+    // Шаблон компилируется при build(): имена столбцов проверяются один раз, у каждого столбца
+    // своя ячейка в строке результата, а список столбцов для INSERT собирается заранее,
+    // поэтому на каждую строку остается только передать параметры.
     public static final class TableBlueprint {
         private final LinkedHashMap<String, String> columns;
+        private final List<String> columnList;
+        private final Set<String> columnNames;
+        private final Map<String, Integer> slots;
+        private final String insertTemplate;
 
         private TableBlueprint(LinkedHashMap<String, String> columns) {
             if (columns == null || columns.isEmpty()) {
                 throw new IllegalArgumentException("Необходимо определить хотя бы один столбец.");
             }
             this.columns = columns;
+
+            HashMap<String, Integer> slots = new HashMap<>();
+            StringBuilder names = new StringBuilder();
+            StringBuilder placeholders = new StringBuilder();
+            for (String column : columns.keySet()) {
+                if (!IDENTIFIER_PATTERN.matcher(column).matches()) {
+                    throw new IllegalArgumentException(
+                        "Название столбца `" + column + "` должно содержать латинские символы и цифры и начинаться с буквы."
+                    );
+                }
+                if (!slots.isEmpty()) {
+                    names.append(", ");
+                    placeholders.append(", ");
+                }
+                slots.put(column, slots.size());
+                names.append('`').append(column).append('`');
+                placeholders.append('?');
+            }
+
+            this.columnList = List.copyOf(columns.keySet());
+            this.columnNames = Collections.unmodifiableSet(columns.keySet());
+            this.slots = Map.copyOf(slots);
+            this.insertTemplate = " (" + names + ") VALUES (" + placeholders + ")";
         }
 
         public LinkedHashMap<String, String> columns() {
@@ -41,7 +95,27 @@ public abstract class Model {
         }
 
         public Set<String> columnNames() {
-            return Collections.unmodifiableSet(columns.keySet());
+            return columnNames;
+        }
+
+        public List<String> columnList() {
+            return columnList;
+        }
+
+        public String insertQuery(String table) {
+            return "INSERT INTO `" + table + "`" + insertTemplate;
+        }
+
+        // values — значения в порядке столбцов шаблона.
+        public void bind(PreparedStatement statement, Object[] values) throws SQLException {
+            if (values.length != columnList.size()) {
+                throw new IllegalArgumentException(
+                    "Ожидалось значений: " + columnList.size() + ", передано: " + values.length + "."
+                );
+            }
+            for (int i = 0; i < values.length; ++i) {
+                bindValue(statement, i + 1, values[i]);
+            }
         }
 
         public static Builder builder() {
@@ -62,67 +136,76 @@ public abstract class Model {
         }
     }
 
+    // values — значения в порядке столбцов шаблона; незаданные столбцы сохраняются как NULL.
     protected record StructuredResult(
-        String preview,
-        String description,
-        LinkedHashMap<String, Object> columnValues,
-        Set<String> requiredColumns
-    ) { }
+        CharSequence preview,
+        CharSequence description,
+        TableBlueprint blueprint,
+        Object[] values
+    ) {
+        public Set<String> requiredColumns() {
+            return blueprint.columnNames();
+        }
+    }
 
     public static class StructuredResultBuilder {
-        private final LinkedHashMap<String, Object> columnValues = new LinkedHashMap<>();
-        private String preview;
-        private String description;
-        private Set<String> requiredColumns = Set.of("result");
+        private final TableBlueprint blueprint;
+        private final Object[] values;
+        private boolean filled = false;
+        private CharSequence preview;
+        private CharSequence description;
+
+        private StructuredResultBuilder(TableBlueprint blueprint) {
+            this.blueprint = blueprint;
+            this.values = new Object[blueprint.columnList.size()];
+        }
 
-        public StructuredResultBuilder preview(String preview) {
+        public StructuredResultBuilder preview(CharSequence preview) {
             this.preview = preview;
             return this;
         }
 
-        public StructuredResultBuilder description(String description) {
+        public StructuredResultBuilder description(CharSequence description) {
             this.description = description;
             return this;
         }
 
-        public StructuredResultBuilder requiredColumns(Set<String> requiredColumns) {
-            if (requiredColumns != null && !requiredColumns.isEmpty()) {
-                this.requiredColumns = requiredColumns;
-            }
-            return this;
-        }
-
         public StructuredResultBuilder put(String column, Object value) {
-            columnValues.put(column, value);
+            Integer slot = blueprint.slots.get(column);
+            if (slot == null) {
+                throw new IllegalArgumentException("Столбец `" + column + "` не входит в шаблон таблицы.");
+            }
+            values[slot] = value;
+            filled = true;
             return this;
         }
 
         public StructuredResult build() {
-            if (preview == null || preview.isBlank()) {
+            if (preview == null || isBlank(preview)) {
                 throw new IllegalStateException("Не задан краткий результат для сохранения.");
             }
-            if (description == null || description.isBlank()) {
+            if (description == null || isBlank(description)) {
                 throw new IllegalStateException("Не задано описание операции.");
             }
-            if (columnValues.isEmpty()) {
+            if (!filled) {
                 throw new IllegalStateException("Не переданы значения столбцов для сохранения.");
             }
 
-            Set<String> safeRequiredColumns = requiredColumns == null
-                ? Set.of("result")
-                : Set.copyOf(requiredColumns);
+            return new StructuredResult(preview, description, blueprint, values.clone());
+        }
 
-            return new StructuredResult(
-                preview,
-                description,
-                new LinkedHashMap<>(columnValues),
-                safeRequiredColumns
-            );
+        private static boolean isBlank(CharSequence text) {
+            for (int i = 0; i < text.length(); ++i) {
+                if (!Character.isWhitespace(text.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
         }
     }
 
-    protected StructuredResultBuilder structuredResultBuilder() {
-        return new StructuredResultBuilder();
+    protected StructuredResultBuilder structuredResultBuilder(TableBlueprint blueprint) {
+        return new StructuredResultBuilder(blueprint);
     }
 
     public abstract String getDescribeMessage();
@@ -133,15 +216,101 @@ public abstract class Model {
     }
 
     static class IO {
-        private static final java.util.Scanner scanner = new java.util.Scanner(System.in);
+        private static final int BUFFER_SIZE = 1 << 16;
+        private static final BufferedReader input = new BufferedReader(
+            new InputStreamReader(System.in, Charset.defaultCharset()),
+            BUFFER_SIZE
+        );
+        private static final Writer stdout = new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8),
+            BUFFER_SIZE
+        );
+        private static Writer output = stdout;
+        private static final Object inputLock = new Object();
+        private static SessionScript session = null;
+        // В терминале строка видна сразу; при перенаправлении вывод копится в буфере
+        // и сбрасывается только перед ожиданием ввода и при завершении программы.
+        private static final boolean interactive = System.console() != null;
+
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread(IO::flush));
+        }
 
-        public static void println(String message) {
-            System.out.println(message);
+        public static synchronized void print(CharSequence message) {
+            try {
+                if (message instanceof ChunkedText text) {
+                    text.writeTo(output);
+                } else {
+                    output.append(message);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        public static synchronized void println(CharSequence message) {
+            print(message);
+            print(System.lineSeparator());
+            if (interactive) {
+                flush();
+            }
         }
 
+        // Ожидание ввода идет под отдельной блокировкой: вывод из фоновых потоков и сброс
+        // буфера при завершении (Ctrl+C) не ждут, пока пользователь нажмет Enter.
         public static String readln(String prompt) {
-            System.out.print(prompt);
-            return scanner.nextLine();
+            SessionScript script;
+            synchronized (IO.class) {
+                print(prompt);
+
+                if (session != null && session.replaying()) {
+                    String answer = session.nextAnswer();
+                    if (answer == null) {
+                        throw new NoSuchElementException("Сценарий сеанса завершен.");
+                    }
+                    return answer;
+                }
+
+                flush();
+                script = session;
+            }
+
+            synchronized (inputLock) {
+                long started = System.nanoTime();
+
+                try {
+                    String line = input.readLine();
+                    if (line == null) {
+                        throw new NoSuchElementException("Ввод завершен.");
+                    }
+                    if (script != null) {
+                        script.answered(line, System.nanoTime() - started);
+                    }
+                    return line;
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+
+        // При воспроизведении ответы берутся из сценария, а вывод отбрасывается.
+        static synchronized void attach(SessionScript script) {
+            flush();
+            session = script;
+            output = script.replaying() ? Writer.nullWriter() : stdout;
+        }
+
+        static synchronized void detach() {
+            session = null;
+            output = stdout;
+        }
+
+        public static synchronized void flush() {
+            try {
+                stdout.flush();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
         }
     }
 
@@ -180,11 +349,19 @@ public abstract class Model {
         }
     }
 
-    private void validateColumnName(String name) {
-        if (!IDENTIFIER_PATTERN.matcher(name).matches()) {
-            throw new IllegalArgumentException(
-                "Название столбца `" + name + "` должно содержать латинские символы и цифры и начинаться с буквы."
-            );
+    // Путь запрашивается, пока файл не удастся отобразить в память; пустой ввод — отмена.
+    protected MappedText readTextFile(String prompt) {
+        while (true) {
+            String answer = IO.readln(prompt).trim();
+            if (answer.isEmpty()) {
+                return null;
+            }
+
+            try {
+                return MappedText.open(Path.of(answer));
+            } catch (InvalidPathException | IOException e) {
+                IO.println("Ошибка: не удалось открыть файл `" + answer + "` (" + e.getMessage() + ").");
+            }
         }
     }
 
@@ -209,11 +386,9 @@ public abstract class Model {
             .append(tableName)
             .append("` (id int AUTO_INCREMENT PRIMARY KEY");
 
-        for (Map.Entry<String, String> column : blueprint.columns().entrySet()) {
-            String columnName = column.getKey();
-            validateColumnName(columnName);
+        for (Map.Entry<String, String> column : blueprint.columns.entrySet()) {
             query.append(", `")
-                .append(columnName)
+                .append(column.getKey())
                 .append("` ")
                 .append(column.getValue());
         }
@@ -230,19 +405,19 @@ public abstract class Model {
         IO.println("Таблица создана.");
     }
 
-    private String chooseTableToSave(Connection connection, String result) throws RuntimeException {
+    private String chooseTableToSave(Connection connection, CharSequence result) throws RuntimeException {
         ArrayList<String> possibleTablesToSave = findCorrectTables(connection);
 
         return chooseTableFromList(
             possibleTablesToSave,
             "Нет доступных таблиц для сохранения.",
-            "\nВыберите таблицу для сохранения результата `" + result + "`:"
+            Rope.of("\nВыберите таблицу для сохранения результата `").concat(result).concat("`:")
         );
     }
 
-    private String chooseTableWithColumns(
+    protected String chooseTableWithColumns(
         Connection connection,
-        String result,
+        CharSequence result,
         Set<String> requiredColumns
     ) throws RuntimeException {
         ArrayList<String> possibleTablesToSave = findTablesWithColumns(connection, requiredColumns);
@@ -250,14 +425,14 @@ public abstract class Model {
         return chooseTableFromList(
             possibleTablesToSave,
             "Нет подходящих таблиц для сохранения структурированных данных.",
-            "\nВыберите таблицу для сохранения результата `" + result + "`:"
+            Rope.of("\nВыберите таблицу для сохранения результата `").concat(result).concat("`:")
         );
     }
 
     private String chooseTableFromList(
         ArrayList<String> tables,
         String emptyMessage,
-        String header
+        CharSequence header
     ) {
         if (tables.isEmpty()) {
             IO.println(emptyMessage);
@@ -286,6 +461,9 @@ public abstract class Model {
     private ArrayList<String> findAllTables(Connection connection) throws RuntimeException {
         ArrayList<String> tablesList = new ArrayList<>();
 
+        long started = System.nanoTime();
+        FlightEvents.MetadataEvent event = new FlightEvents.MetadataEvent();
+        event.begin();
         try {
             DatabaseMetaData metaData = connection.getMetaData();
             try (
@@ -300,12 +478,18 @@ public abstract class Model {
         } catch (SQLException e) {
             System.err.println("Невозможно получить список таблиц.");
             throw new RuntimeException(e);
+        } finally {
+            Telemetry.record(Telemetry.Stage.METADATA, System.nanoTime() - started);
+            event.finish("все таблицы", tablesList.size());
         }
     }
 
     private ArrayList<String> findCorrectTables(Connection connection) throws RuntimeException {
         ArrayList<String> correctTables = new ArrayList<>();
 
+        long started = System.nanoTime();
+        FlightEvents.MetadataEvent event = new FlightEvents.MetadataEvent();
+        event.begin();
         try {
             DatabaseMetaData metaData = connection.getMetaData();
 
@@ -326,6 +510,9 @@ public abstract class Model {
         } catch (SQLException e) {
             System.err.println("Невозможен поиск подходящих таблиц.");
             throw new RuntimeException(e);
+        } finally {
+            Telemetry.record(Telemetry.Stage.METADATA, System.nanoTime() - started);
+            event.finish("таблицы для результата", correctTables.size());
         }
     }
 
@@ -335,6 +522,9 @@ public abstract class Model {
     ) throws RuntimeException {
         ArrayList<String> tablesList = new ArrayList<>();
 
+        long started = System.nanoTime();
+        FlightEvents.MetadataEvent event = new FlightEvents.MetadataEvent();
+        event.begin();
         try {
             DatabaseMetaData metaData = connection.getMetaData();
             try (
@@ -356,6 +546,9 @@ public abstract class Model {
         } catch (SQLException e) {
             System.err.println("Невозможно получить список таблиц.");
             throw new RuntimeException(e);
+        } finally {
+            Telemetry.record(Telemetry.Stage.METADATA, System.nanoTime() - started);
+            event.finish("таблицы со столбцами", tablesList.size());
         }
     }
 
@@ -455,19 +648,56 @@ public abstract class Model {
         return typeName != null && NUMERIC_COLUMN_TYPES.contains(typeName.toUpperCase());
     }
 
-    private String saveToTable(Connection connection, String tableToSave, String result) {
-        String query = "INSERT INTO `" + tableToSave + "` (result) VALUES (?)";
+    private static void bindText(PreparedStatement statement, int index, CharSequence value)
+        throws SQLException
+    {
+        if (value instanceof ChunkedText text) {
+            statement.setCharacterStream(index, text.reader(), text.length());
+        } else {
+            statement.setString(index, value.toString());
+        }
+    }
+
+    static void bindValue(PreparedStatement statement, int index, Object value) throws SQLException {
+        if (value == null) {
+            statement.setObject(index, null);
+        } else if (value instanceof Boolean bool) {
+            statement.setBoolean(index, bool);
+        } else if (value instanceof Integer integer) {
+            statement.setInt(index, integer);
+        } else if (value instanceof Long longValue) {
+            statement.setLong(index, longValue);
+        } else if (value instanceof Double doubleValue) {
+            statement.setDouble(index, doubleValue);
+        } else if (value instanceof String str) {
+            statement.setString(index, str);
+        } else if (value instanceof CharSequence text) {
+            bindText(statement, index, text);
+        } else {
+            statement.setObject(index, value);
+        }
+    }
 
-        try (
-            PreparedStatement statement =
-                connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)
-        ) {
-            statement.setString(1, result);
+    private String saveToTable(Connection connection, String tableToSave, CharSequence result)
+        throws SQLException
+    {
+        long started = System.nanoTime();
+        FlightEvents.InsertEvent event = new FlightEvents.InsertEvent();
+        event.begin();
+        int insertedRows = 0;
+        try {
+            PreparedStatement statement = statements(connection).prepare(
+                tableToSave,
+                RESULT_COLUMNS,
+                () -> "INSERT INTO `" + tableToSave + "` (result) VALUES (?)"
+            );
+            bindText(statement, 1, result);
             int affectedRows = statement.executeUpdate();
 
             if (affectedRows == 0) {
-                throw new SQLException();
+                throw new SQLException("Строка не добавлена.");
             }
+            insertedRows = affectedRows;
 
             try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
@@ -475,8 +705,15 @@ public abstract class Model {
                 }
             }
         } catch (SQLException e) {
+            statements(connection).evict(tableToSave, RESULT_COLUMNS);
             System.err.println("Не удалось сохранить значение в таблицу.");
             System.err.println("Сообщение: " + e.getMessage());
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            Telemetry.record(Telemetry.Stage.INSERT, elapsed);
+            RuntimeStatistics.inserted(insertedRows, elapsed);
+            event.finish(tableToSave, insertedRows);
         }
 
         return null;
@@ -485,59 +722,28 @@ public abstract class Model {
     private String saveStructuredRow(
         Connection connection,
         String tableToSave,
-        LinkedHashMap<String, Object> columnValues
-    ) {
-        if (columnValues.isEmpty()) {
-            return null;
-        }
-
-        columnValues.keySet().forEach(this::validateColumnName);
-
-        StringBuilder columnsBuilder = new StringBuilder();
-        StringBuilder placeholdersBuilder = new StringBuilder();
-        boolean first = true;
-
-        for (String column : columnValues.keySet()) {
-            if (!first) {
-                columnsBuilder.append(", ");
-                placeholdersBuilder.append(", ");
-            }
-            columnsBuilder.append("`").append(column).append("`");
-            placeholdersBuilder.append("?");
-            first = false;
-        }
-
-        String query = "INSERT INTO `" + tableToSave + "` (" + columnsBuilder + ") VALUES ("
-            + placeholdersBuilder + ")";
-
-        try (
-            PreparedStatement statement =
-                connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)
-        ) {
-            int index = 1;
-            for (Object value : columnValues.values()) {
-                if (value == null) {
-                    statement.setObject(index++, null);
-                } else if (value instanceof Boolean bool) {
-                    statement.setBoolean(index++, bool);
-                } else if (value instanceof Integer integer) {
-                    statement.setInt(index++, integer);
-                } else if (value instanceof Long longValue) {
-                    statement.setLong(index++, longValue);
-                } else if (value instanceof Double doubleValue) {
-                    statement.setDouble(index++, doubleValue);
-                } else if (value instanceof String str) {
-                    statement.setString(index++, str);
-                } else {
-                    statement.setObject(index++, value);
-                }
-            }
+        StructuredResult structuredResult
+    ) throws SQLException {
+        TableBlueprint blueprint = structuredResult.blueprint();
+
+        long started = System.nanoTime();
+        FlightEvents.InsertEvent event = new FlightEvents.InsertEvent();
+        event.begin();
+        int insertedRows = 0;
+        try {
+            PreparedStatement statement = statements(connection).prepare(
+                tableToSave,
+                blueprint.columnList,
+                () -> blueprint.insertQuery(tableToSave)
+            );
+            blueprint.bind(statement, structuredResult.values());
 
             int affectedRows = statement.executeUpdate();
 
             if (affectedRows == 0) {
-                throw new SQLException();
+                throw new SQLException("Строка не добавлена.");
             }
+            insertedRows = affectedRows;
 
             try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
@@ -545,45 +751,241 @@ public abstract class Model {
                 }
             }
         } catch (SQLException e) {
+            statements(connection).evict(tableToSave, blueprint.columnList);
             System.err.println("Не удалось сохранить структурированные данные.");
             System.err.println("Сообщение: " + e.getMessage());
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            Telemetry.record(Telemetry.Stage.INSERT, elapsed);
+            RuntimeStatistics.inserted(insertedRows, elapsed);
+            event.finish(tableToSave, insertedRows);
         }
 
         return null;
     }
 
-    void finishQuery(Connection connection, String result, String query) throws RuntimeException {
-        String tableToSave = chooseTableToSave(connection, result);
+    void finishQuery(Connection connection, CharSequence result, CharSequence query)
+        throws RuntimeException
+    {
+        long started = System.nanoTime();
+        try {
+            String tableToSave = chooseTableToSave(connection, result);
 
-        if (tableToSave == null) {
-            return;
-        }
+            if (tableToSave == null) {
+                return;
+            }
 
-        String id = saveToTable(connection, tableToSave, result);
+            long sequence = journal(tableToSave, List.of("result"), List.of(result.toString()));
+            CompletableFuture<String> id = submit(
+                connection,
+                target -> saveToTable(target, tableToSave, result),
+                sequence
+            );
 
-        savedQueries_.add(new SavedQuery(id, query, tableToSave));
+            savedQueries_.add(new SavedQuery(id, query, tableToSave));
 
-        IO.println("\nЗначение сохранено.");
+            IO.println("\nЗначение передано на сохранение.");
+        } finally {
+            Telemetry.record(Telemetry.Stage.SAVE, System.nanoTime() - started);
+        }
     }
 
     protected void finishStructuredQuery(Connection connection, StructuredResult structuredResult)
         throws RuntimeException
     {
-        String tableToSave = chooseTableWithColumns(
-            connection,
-            structuredResult.preview(),
-            structuredResult.requiredColumns()
-        );
+        long started = System.nanoTime();
+        try {
+            String tableToSave = chooseTableWithColumns(
+                connection,
+                structuredResult.preview(),
+                structuredResult.requiredColumns()
+            );
+
+            if (tableToSave == null) {
+                return;
+            }
+
+            long sequence = journal(
+                tableToSave,
+                structuredResult.blueprint().columnList,
+                Arrays.asList(structuredResult.values())
+            );
+            CompletableFuture<String> id = submit(
+                connection,
+                target -> saveStructuredRow(target, tableToSave, structuredResult),
+                sequence
+            );
+
+            savedQueries_.add(new SavedQuery(id, structuredResult.description(), tableToSave));
+
+            IO.println("\nЗначение передано на сохранение.");
+        } finally {
+            Telemetry.record(Telemetry.Stage.SAVE, System.nanoTime() - started);
+        }
+    }
 
-        if (tableToSave == null) {
+    // Открывает журнал результатов модели (build/wal/<модель>.wal) и дописывает в БД значения,
+    // не сохраненные в прошлых сеансах. Без журнала значения пишутся в БД напрямую. Значения,
+    // которые не удалось записать (и здесь, и в ходе сеанса), повторяются потоком записи после
+    // следующей успешной записи и в awaitPendingWrites.
+    void recoverPendingWrites(Connection connection) {
+        Path path = Path.of("build", "wal", getClass().getSimpleName() + ".wal");
+        try {
+            journal_ = WriteAheadLog.open(path);
+        } catch (IOException e) {
+            System.err.println("Журнал результатов недоступен, значения пишутся в БД без него.");
+            System.err.println("Сообщение: " + e.getMessage());
             return;
         }
+        sessionConnection_ = connection;
+        resultWriter_.afterCommit(this::retryJournal);
 
-        String id = saveStructuredRow(connection, tableToSave, structuredResult.columnValues());
+        int pending = journal_.pendingCount();
+        if (pending == 0) {
+            return;
+        }
 
-        savedQueries_.add(new SavedQuery(id, structuredResult.description(), tableToSave));
+        IO.println("\nВ журнале найдено несохраненных значений: " + pending + ". Запись в БД...");
+        try {
+            WriteAheadLog.Replay replay = journal_.replay(connection);
+            IO.println("Сохранено: " + replay.inserted() + ", осталось в журнале: " + replay.remaining() + ".");
+        } catch (SQLException e) {
+            System.err.println("Не удалось восстановить значения из журнала.");
+            System.err.println("Сообщение: " + e.getMessage());
+        }
+    }
 
-        IO.println("\nЗначение сохранено.");
+    // Вызывается после awaitPendingWrites: подготовленные запросы закрываются, журнал
+    // очищается, если все значения сохранены, файл истории сеанса удаляется.
+    void closeSession() {
+        if (statements_ != null) {
+            statements_.close();
+            statements_ = null;
+        }
+        if (writerConnection_ != null) {
+            try {
+                writerConnection_.close();
+            } catch (SQLException e) {
+                System.err.println("Не удалось закрыть подключение фоновой записи: " + e.getMessage());
+            }
+            writerConnection_ = null;
+        }
+
+        try {
+            savedQueries_.close();
+        } catch (IOException e) {
+            System.err.println("Не удалось удалить файл истории сеанса: " + e.getMessage());
+        }
+
+        if (journal_ == null) {
+            return;
+        }
+        try {
+            journal_.close();
+        } catch (IOException e) {
+            System.err.println("Не удалось закрыть журнал результатов: " + e.getMessage());
+        }
+        journal_ = null;
+    }
+
+    // Кэш подготовленных запросов привязан к подключению; вызывается из потока фоновой записи.
+    private StatementCache statements(Connection connection) {
+        if (statements_ == null || statements_.connection() != connection) {
+            if (statements_ != null) {
+                statements_.close();
+            }
+            statements_ = new StatementCache(connection, STATEMENT_CACHE_SIZE);
+        }
+        return statements_;
+    }
+
+    boolean groupCommit() {
+        return resultWriter_.groupCommit();
+    }
+
+    // Подключение только для фоновой записи при групповой фиксации (см. ResultWriter).
+    void useWriterConnection(Connection connection) {
+        writerConnection_ = connection;
+        resultWriter_.useConnection(connection);
+    }
+
+    // Номер записи в журнале или -1, если журнал не ведется.
+    private long journal(String table, List<String> columns, List<Object> values) {
+        if (journal_ == null) {
+            return -1;
+        }
+        try {
+            return journal_.append(table, columns, values);
+        } catch (IOException e) {
+            System.err.println("Не удалось записать значение в журнал: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    // Отметка в журнале ставится после фиксации строки в БД, при ошибке журнал решает,
+    // повторять ли строку.
+    private CompletableFuture<String> submit(Connection connection, ResultWriter.Insert insert, long sequence) {
+        CompletableFuture<String> id = resultWriter_.submit(connection, insert, () -> committed(sequence));
+        if (sequence >= 0) {
+            id.whenComplete((value, error) -> {
+                if (error != null) {
+                    journal_.failed(sequence, error);
+                }
+            });
+        }
+        return id;
+    }
+
+    // Вызывается в потоке записи: повторяет значения, не записанные из-за потери связи.
+    private void retryJournal(Connection connection) {
+        WriteAheadLog journal = journal_;
+        if (journal == null || journal.retryCount() == 0) {
+            return;
+        }
+        try {
+            journal.retry(connection);
+        } catch (SQLException e) {
+            System.err.println("Не удалось повторить запись значений из журнала: " + e.getMessage());
+        }
+    }
+
+    private void committed(long sequence) {
+        if (sequence >= 0) {
+            try {
+                journal_.done(sequence);
+            } catch (IOException e) {
+                System.err.println("Не удалось отметить значение в журнале: " + e.getMessage());
+            }
+        }
+    }
+
+    // Дожидается фоновой записи всех результатов и фиксирует открытую группу: перед экспортом,
+    // перед операциями, которые меняют режим транзакций соединения, и при завершении работы.
+    protected void awaitPendingWrites() {
+        int pending = resultWriter_.pending();
+        if (pending > 0) {
+            IO.println("\nОжидание записи значений в БД: " + pending + "...");
+            resultWriter_.await();
+
+            int failed = savedQueries_.failed();
+            if (failed > 0) {
+                IO.println("Не удалось сохранить значений: " + failed + " (см. список данных сессии).");
+            }
+        }
+
+        if (journal_ != null && journal_.retryCount() > 0) {
+            resultWriter_.drain(sessionConnection_);
+            int waiting = journal_.retryCount();
+            if (waiting > 0) {
+                IO.println("Значений в журнале, ожидающих связи с БД: " + waiting + ".");
+            }
+        }
+    }
+
+    // Читается и из потока JMX, поэтому значение может немного отставать.
+    int savedQueryCount() {
+        return savedQueries_.size();
     }
 
     private void checkQueries() {
@@ -598,6 +1000,7 @@ public abstract class Model {
     }
 
     void saveToExcel(Connection connection) {
+        awaitPendingWrites();
         checkQueries();
 
         String tableName = chooseTableFromList(
@@ -612,6 +1015,11 @@ public abstract class Model {
 
         String selectQuery = "SELECT * FROM `" + tableName + "`";
 
+        long started = System.nanoTime();
+        FlightEvents.ExportEvent event = new FlightEvents.ExportEvent();
+        event.begin();
+        int exportedRows = 0;
+        long exportedBytes = 0;
         try (
             Statement statement = connection.createStatement();
             ResultSet resultSet = statement.executeQuery(selectQuery);
@@ -643,12 +1051,107 @@ public abstract class Model {
             }
 
             workbook.write(fos);
+            exportedRows = rowNum - 1;
+            exportedBytes = fos.getChannel().position();
 
-            System.out.println("Таблица экспортирована.");
+            IO.println("Таблица экспортирована.");
         } catch (Exception e) {
             System.err.println(
                 "Невозможно сохранить результат в Excel. Может быть такой таблицы нет."
             );
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            Telemetry.record(Telemetry.Stage.EXPORT, elapsed);
+            RuntimeStatistics.exported(exportedRows, elapsed);
+            event.finish(tableName, exportedRows, exportedBytes);
+        }
+    }
+
+    // Загрузка листов xlsx в выбранную таблицу (см. ExcelImport); столбцы с AUTO_INCREMENT
+    // не заполняются, поэтому книгу, выгруженную saveToExcel, можно загрузить обратно.
+    protected void loadFromExcel(Connection connection) {
+        awaitPendingWrites();
+
+        Path file = readExcelFile();
+        if (file == null) {
+            return;
+        }
+
+        String tableName = chooseTableFromList(
+            findAllTables(connection),
+            "Нет таблиц для импорта.",
+            "\nВыберите таблицу, в которую нужно загрузить данные из Excel:"
+        );
+        if (tableName == null) {
+            return;
+        }
+
+        ExcelImport.Report report;
+        try {
+            report = new ExcelImport(connection, tableName, importColumns(connection, tableName)).run(file);
+        } catch (IOException | SQLException e) {
+            IO.println("Ошибка: импорт из Excel прерван (" + e.getMessage() + ").");
+            return;
+        }
+
+        String summary = String.format(
+            "листов %d (пропущено %d), строк %d за %.2f с",
+            report.sheets(),
+            report.skippedSheets(),
+            report.rows(),
+            report.nanos() / 1e9
+        );
+        IO.println("\nКнига " + file.toAbsolutePath() + " загружена: " + summary + ".");
+        savedQueries_.add(new SavedQuery(
+            report.rows() + " строк",
+            "Импорт из Excel " + file.toAbsolutePath() + " — " + summary,
+            tableName
+        ));
+    }
+
+    private Path readExcelFile() {
+        while (true) {
+            String answer = IO.readln("\nПуть к файлу .xlsx (пустой ввод — отмена): ").trim();
+            if (answer.isEmpty()) {
+                return null;
+            }
+
+            try {
+                Path path = Path.of(answer);
+                if (Files.isRegularFile(path) && Files.isReadable(path)) {
+                    return path;
+                }
+                IO.println("Ошибка: файл `" + answer + "` не найден или недоступен для чтения.");
+            } catch (InvalidPathException e) {
+                IO.println("Ошибка: некорректный путь `" + answer + "`.");
+            }
+        }
+    }
+
+    // Заголовок в нижнем регистре -> имя столбца таблицы (без столбцов AUTO_INCREMENT).
+    private Map<String, String> importColumns(Connection connection, String tableName) throws RuntimeException {
+        HashMap<String, String> columns = new HashMap<>();
+
+        long started = System.nanoTime();
+        FlightEvents.MetadataEvent event = new FlightEvents.MetadataEvent();
+        event.begin();
+        try (
+            ResultSet resultSet =
+                connection.getMetaData().getColumns(connection.getCatalog(), null, tableName, "%")
+        ) {
+            while (resultSet.next()) {
+                if (!"YES".equals(resultSet.getString("IS_AUTOINCREMENT"))) {
+                    String column = resultSet.getString("COLUMN_NAME");
+                    columns.put(column.toLowerCase(), column);
+                }
+            }
+            return columns;
+        } catch (SQLException e) {
+            System.err.println("Невозможно получить столбцы таблицы.");
+            throw new RuntimeException(e);
+        } finally {
+            Telemetry.record(Telemetry.Stage.METADATA, System.nanoTime() - started);
+            event.finish("столбцы " + tableName, 1);
         }
     }
 }
@@ -0,0 +1,245 @@
+package common;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Фоновая запись результатов в БД. Поток один, поэтому строки попадают в таблицы в порядке
+// команд, а вставки не выполняются параллельно друг другу. Очередь ограничена: если она
+// заполнена, команда ждет свободного места (порядок при этом сохраняется).
+//
+// Групповая фиксация (-Dcommit.rows=<N>, по умолчанию выключена) идет через отдельное
+// подключение потока записи (useConnection), чтобы DDL и запросы интерактивного потока не
+// попадали в открытую транзакцию и не фиксировали ее неявно; без него строки пишутся с
+// автокоммитом. Автокоммит отключается на время группы, а COMMIT выполняется каждые N строк,
+// через -Dcommit.millis=<T> мс (по умолчанию 1000) после первой строки группы, а также в
+// await() — перед экспортом и при завершении. Значение считается сохраненным только после
+// COMMIT; если вставка или COMMIT не удались, вся группа откатывается и помечается несохраненной.
+//
+// После успешной вставки или COMMIT поток записи вызывает afterCommit с тем же подключением:
+// сервер доступен, и можно повторить значения, которые раньше не удалось записать.
+final class ResultWriter {
+    static final String ROWS_PROPERTY = "commit.rows";
+    static final String MILLIS_PROPERTY = "commit.millis";
+    private static final int QUEUE_CAPACITY = 64;
+    private static final long DEFAULT_COMMIT_MILLIS = 1000;
+
+    // Вставка в подключение, которое выбрал поток записи.
+    @FunctionalInterface
+    interface Insert {
+        String into(Connection connection) throws Exception;
+    }
+
+    // Действие в потоке записи с подключением, которое только что подтвердило запись.
+    @FunctionalInterface
+    interface AfterCommit {
+        void run(Connection connection);
+    }
+
+    private record Uncommitted(CompletableFuture<String> id, String value, Runnable committed) { }
+
+    private final int groupRows = Integer.getInteger(ROWS_PROPERTY, 0);
+    private final long groupMillis = Long.getLong(MILLIS_PROPERTY, DEFAULT_COMMIT_MILLIS);
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile Connection own = null;
+    private volatile AfterCommit afterCommit = connection -> { };
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        1,
+        1,
+        0L,
+        TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+        task -> {
+            Thread thread = new Thread(task, "result-writer");
+            thread.setDaemon(true);
+            return thread;
+        },
+        ResultWriter::waitForSpace
+    );
+
+    // Состояние группы меняется только в потоке записи.
+    private final ArrayList<Uncommitted> group = new ArrayList<>();
+    private Connection transaction = null;
+    private long generation = 0;
+    private ScheduledThreadPoolExecutor timer = null;
+
+    boolean groupCommit() {
+        return groupRows > 1;
+    }
+
+    // Отдельное подключение для групповой фиксации; закрывает его вызывающий после await().
+    void useConnection(Connection connection) {
+        own = connection;
+    }
+
+    void afterCommit(AfterCommit action) {
+        afterCommit = action;
+    }
+
+    // Результат вставки (id строки) или исключение попадают в возвращаемый future; committed
+    // вызывается, когда строка зафиксирована в БД. connection — общее подключение сеанса,
+    // в него строки пишутся с автокоммитом.
+    CompletableFuture<String> submit(Connection connection, Insert insert, Runnable committed) {
+        CompletableFuture<String> id = new CompletableFuture<>();
+        pending.incrementAndGet();
+
+        executor.execute(Telemetry.bind(() -> {
+            Connection grouped = groupCommit() ? own : null;
+            if (grouped == null) {
+                try {
+                    String value = insert.into(connection);
+                    committed.run();
+                    id.complete(value);
+                } catch (Exception e) {
+                    id.completeExceptionally(e);
+                    return;
+                } finally {
+                    pending.decrementAndGet();
+                }
+                afterCommit.run(connection);
+                return;
+            }
+
+            try {
+                begin(grouped);
+                group.add(new Uncommitted(id, insert.into(grouped), committed));
+            } catch (Exception e) {
+                rollback(e, id);
+                return;
+            }
+            if (group.size() >= groupRows) {
+                commit();
+            }
+        }));
+
+        return id;
+    }
+
+    // Число значений, которые еще не записаны (или не зафиксированы).
+    int pending() {
+        return pending.get();
+    }
+
+    // Задача выполнится только после всех поставленных раньше и зафиксирует открытую группу.
+    void await() {
+        if (pending.get() > 0) {
+            CompletableFuture.runAsync(this::commit, executor).join();
+        }
+    }
+
+    // Выполняет afterCommit в потоке записи после всех поставленных раньше задач; connection —
+    // общее подключение сеанса (при групповой фиксации используется свое).
+    void drain(Connection connection) {
+        Connection target = groupCommit() && own != null ? own : connection;
+        CompletableFuture.runAsync(() -> afterCommit.run(target), executor).join();
+    }
+
+    private void begin(Connection connection) throws SQLException {
+        if (transaction == connection) {
+            return;
+        }
+        if (transaction != null) {
+            commit();
+        }
+
+        connection.setAutoCommit(false);
+        transaction = connection;
+        long current = ++generation;
+        timer().schedule(() -> executor.execute(() -> {
+            if (generation == current) {
+                commit();
+            }
+        }), groupMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void commit() {
+        if (transaction == null) {
+            return;
+        }
+
+        Connection committedOn = transaction;
+        try {
+            transaction.commit();
+        } catch (SQLException e) {
+            System.err.println("Не удалось зафиксировать группу значений (" + group.size() + ").");
+            System.err.println("Сообщение: " + e.getMessage());
+            rollback(e, null);
+            return;
+        }
+
+        for (Uncommitted row : group) {
+            row.committed().run();
+            row.id().complete(row.value());
+        }
+        finish();
+        afterCommit.run(committedOn);
+    }
+
+    // Откатывает открытую группу; failed — значение, вставка которого не удалась.
+    private void rollback(Exception cause, CompletableFuture<String> failed) {
+        if (transaction != null) {
+            try {
+                transaction.rollback();
+            } catch (SQLException e) {
+                System.err.println("Не удалось откатить транзакцию: " + e.getMessage());
+            }
+        }
+
+        // Остальные строки группы сами по себе не ошибочны, поэтому ошибка временная: их можно повторить.
+        SQLException rolledBack = new SQLTransactionRollbackException(
+            "транзакция отменена (" + cause.getMessage() + ")",
+            cause
+        );
+        for (Uncommitted row : group) {
+            row.id().completeExceptionally(rolledBack);
+        }
+        if (failed != null) {
+            failed.completeExceptionally(cause);
+            pending.decrementAndGet();
+        }
+        finish();
+    }
+
+    private void finish() {
+        pending.addAndGet(-group.size());
+        group.clear();
+        ++generation;
+
+        if (transaction != null) {
+            try {
+                transaction.setAutoCommit(true);
+            } catch (SQLException e) {
+                System.err.println("Не удалось включить автокоммит: " + e.getMessage());
+            }
+            transaction = null;
+        }
+    }
+
+    private ScheduledThreadPoolExecutor timer() {
+        if (timer == null) {
+            timer = new ScheduledThreadPoolExecutor(1, task -> {
+                Thread thread = new Thread(task, "result-commit-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return timer;
+    }
+
+    private static void waitForSpace(Runnable task, ThreadPoolExecutor executor) {
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package common;
+
+import java.io.IOException;
+
+public final class Rope implements ChunkedText {
+    private static final int SHORT_LEAF_LENGTH = 128;
+    private static final Rope EMPTY = new Rope("", 0, 0);
+
+    // Лист ссылается на диапазон исходного текста (строки или отображенного файла),
+    // внутренний узел — на два поддерева.
+    private final CharSequence text;
+    private final int offset;
+    private final Rope left;
+    private final Rope right;
+    private final int length;
+    private final int depth;
+
+    private Rope(CharSequence text, int offset, int length) {
+        this.text = text;
+        this.offset = offset;
+        this.left = null;
+        this.right = null;
+        this.length = length;
+        this.depth = 0;
+    }
+
+    private Rope(Rope left, Rope right) {
+        this.text = null;
+        this.offset = 0;
+        this.left = left;
+        this.right = right;
+        this.length = Math.addExact(left.length, right.length);
+        this.depth = Math.max(left.depth, right.depth) + 1;
+    }
+
+    public static Rope of(CharSequence value) {
+        if (value instanceof Rope rope) {
+            return rope;
+        }
+        if (value instanceof ChunkedText chunked) {
+            return chunked.length() == 0 ? EMPTY : new Rope(chunked, 0, chunked.length());
+        }
+        String str = value.toString();
+        return str.isEmpty() ? EMPTY : new Rope(str, 0, str.length());
+    }
+
+    public Rope concat(CharSequence other) {
+        Rope suffix = of(other);
+
+        if (suffix.length == 0) {
+            return this;
+        }
+        if (length == 0) {
+            return suffix;
+        }
+        // Короткие куски склеиваются в один лист, чтобы дерево не разрасталось мелочью.
+        if (isLeaf() && suffix.isLeaf() && length + suffix.length <= SHORT_LEAF_LENGTH) {
+            return of(toString() + suffix);
+        }
+
+        return join(this, suffix);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+
+        Rope node = this;
+        while (!node.isLeaf()) {
+            if (index < node.left.length) {
+                node = node.left;
+            } else {
+                index -= node.left.length;
+                node = node.right;
+            }
+        }
+        return node.text.charAt(node.offset + index);
+    }
+
+    @Override
+    public Rope subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException(
+                "begin " + start + ", end " + end + ", length " + length
+            );
+        }
+        return slice(start, end);
+    }
+
+    public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+        if (srcBegin >= srcEnd) {
+            return;
+        }
+        if (isLeaf()) {
+            CharSequences.getChars(text, offset + srcBegin, offset + srcEnd, dst, dstBegin);
+            return;
+        }
+
+        int leftLength = left.length;
+        if (srcBegin < leftLength) {
+            left.getChars(srcBegin, Math.min(srcEnd, leftLength), dst, dstBegin);
+        }
+        if (srcEnd > leftLength) {
+            int from = Math.max(srcBegin, leftLength);
+            right.getChars(from - leftLength, srcEnd - leftLength, dst, dstBegin + from - srcBegin);
+        }
+    }
+
+    // Содержимое отдается кусками по листьям: целиком строка в памяти не собирается.
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        if (isLeaf()) {
+            if (text instanceof String) {
+                for (int from = offset; from < offset + length; from += CHUNK_SIZE) {
+                    out.append(text, from, Math.min(from + CHUNK_SIZE, offset + length));
+                }
+            } else {
+                ChunkedText.super.writeTo(out);
+            }
+            return;
+        }
+        left.writeTo(out);
+        right.writeTo(out);
+    }
+
+    @Override
+    public String toString() {
+        if (isLeaf() && text instanceof String str) {
+            return str.substring(offset, offset + length);
+        }
+
+        char[] chars = new char[length];
+        getChars(0, length, chars, 0);
+        return new String(chars);
+    }
+
+    private boolean isLeaf() {
+        return text != null;
+    }
+
+    private Rope slice(int start, int end) {
+        if (start == 0 && end == length) {
+            return this;
+        }
+        if (start == end) {
+            return EMPTY;
+        }
+        if (isLeaf()) {
+            return new Rope(text, offset + start, end - start);
+        }
+
+        int leftLength = left.length;
+        if (end <= leftLength) {
+            return left.slice(start, end);
+        }
+        if (start >= leftLength) {
+            return right.slice(start - leftLength, end - leftLength);
+        }
+        return join(left.slice(start, leftLength), right.slice(0, end - leftLength));
+    }
+
+    // Склейка как в AVL-деревьях: более высокое поддерево спускается до высоты меньшего,
+    // после чего повороты восстанавливают баланс. Высота всегда O(log n).
+    private static Rope join(Rope left, Rope right) {
+        if (left.depth > right.depth + 1) {
+            return balance(left.left, join(left.right, right));
+        }
+        if (right.depth > left.depth + 1) {
+            return balance(join(left, right.left), right.right);
+        }
+        return new Rope(left, right);
+    }
+
+    private static Rope balance(Rope left, Rope right) {
+        if (left.depth > right.depth + 1) {
+            if (left.left.depth >= left.right.depth) {
+                return new Rope(left.left, new Rope(left.right, right));
+            }
+            return new Rope(
+                new Rope(left.left, left.right.left),
+                new Rope(left.right.right, right)
+            );
+        }
+        if (right.depth > left.depth + 1) {
+            if (right.right.depth >= right.left.depth) {
+                return new Rope(new Rope(left, right.left), right.right);
+            }
+            return new Rope(
+                new Rope(left, right.left.left),
+                new Rope(right.left.right, right.right)
+            );
+        }
+        return new Rope(left, right);
+    }
+}
@@ -0,0 +1,135 @@
+package common;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Счетчики сеанса для наблюдения через JMX (common:type=RuntimeStatistics). Код команд
+// только увеличивает LongAdder, а суммы считаются, когда атрибут запрашивает клиент.
+public final class RuntimeStatistics implements RuntimeStatisticsMXBean {
+    private static final LongAdder commands = new LongAdder();
+    private static final LongAdder rowsInserted = new LongAdder();
+    private static final LongAdder insertNanos = new LongAdder();
+    private static final LongAdder rowsExported = new LongAdder();
+    private static final LongAdder exportNanos = new LongAdder();
+    private static final Map<String, CacheCounter> caches = new ConcurrentHashMap<>();
+
+    private final String model;
+    private final Supplier<Connection> connection;
+    private final IntSupplier savedQueries;
+
+    private RuntimeStatistics(String model, Supplier<Connection> connection, IntSupplier savedQueries) {
+        this.model = model;
+        this.connection = connection;
+        this.savedQueries = savedQueries;
+    }
+
+    // Регистрирует MBean модели в платформенном MBeanServer; ошибка регистрации не мешает работе.
+    static void register(Model model, Supplier<Connection> connection) {
+        String name = model.getClass().getSimpleName();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            ObjectName objectName = new ObjectName("common:type=RuntimeStatistics,model=" + name);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(
+                    new RuntimeStatistics(name, connection, model::savedQueryCount),
+                    objectName
+                );
+            }
+        } catch (JMException e) {
+            System.err.println("Не удалось зарегистрировать статистику в JMX: " + e.getMessage());
+        }
+    }
+
+    public static void commandExecuted() {
+        commands.increment();
+    }
+
+    public static void inserted(long rows, long nanos) {
+        rowsInserted.add(rows);
+        insertNanos.add(nanos);
+    }
+
+    public static void exported(long rows, long nanos) {
+        rowsExported.add(rows);
+        exportNanos.add(nanos);
+    }
+
+    public static CacheCounter cache(String name) {
+        return caches.computeIfAbsent(name, key -> new CacheCounter());
+    }
+
+    @Override
+    public String getModel() {
+        return model;
+    }
+
+    @Override
+    public boolean isConnected() {
+        Connection current = connection.get();
+        try {
+            return current != null && !current.isClosed();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public long getCommandsExecuted() {
+        return commands.sum();
+    }
+
+    @Override
+    public long getRowsInserted() {
+        return rowsInserted.sum();
+    }
+
+    @Override
+    public double getInsertedRowsPerSecond() {
+        return perSecond(rowsInserted.sum(), insertNanos.sum());
+    }
+
+    @Override
+    public long getRowsExported() {
+        return rowsExported.sum();
+    }
+
+    @Override
+    public double getExportedRowsPerSecond() {
+        return perSecond(rowsExported.sum(), exportNanos.sum());
+    }
+
+    @Override
+    public int getSavedQueries() {
+        return savedQueries.getAsInt();
+    }
+
+    @Override
+    public Map<String, Double> getCacheHitRates() {
+        TreeMap<String, Double> rates = new TreeMap<>();
+        caches.forEach((name, counter) -> rates.put(name, counter.hitRate()));
+        return rates;
+    }
+
+    @Override
+    public Map<String, Long> getCacheLookups() {
+        TreeMap<String, Long> lookups = new TreeMap<>();
+        caches.forEach((name, counter) -> lookups.put(name, counter.hits() + counter.misses()));
+        return lookups;
+    }
+
+    // Строк в секунду времени, проведенного во вставке или экспорте.
+    private static double perSecond(long rows, long nanos) {
+        return nanos == 0 ? 0 : rows * 1e9 / nanos;
+    }
+}
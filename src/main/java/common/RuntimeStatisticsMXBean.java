@@ -0,0 +1,26 @@
+package common;
+
+import java.util.Map;
+
+// Атрибуты, которые видны в jconsole и других JMX-клиентах.
+public interface RuntimeStatisticsMXBean {
+    String getModel();
+
+    boolean isConnected();
+
+    long getCommandsExecuted();
+
+    long getRowsInserted();
+
+    double getInsertedRowsPerSecond();
+
+    long getRowsExported();
+
+    double getExportedRowsPerSecond();
+
+    int getSavedQueries();
+
+    Map<String, Double> getCacheHitRates();
+
+    Map<String, Long> getCacheLookups();
+}
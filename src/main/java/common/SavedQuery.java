@@ -2,9 +2,33 @@ package common;
 
 import static common.Model.IO;
 
-public record SavedQuery(String id_, String query_, String tableName_) {
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// id_ завершается, когда фоновая запись в таблицу закончена (успешно или с ошибкой).
+public record SavedQuery(CompletableFuture<String> id_, CharSequence query_, String tableName_) {
+    public SavedQuery(String id, CharSequence query, String tableName) {
+        this(CompletableFuture.completedFuture(id), query, tableName);
+    }
+
+    public boolean failed() {
+        return id_.isCompletedExceptionally();
+    }
+
     public void showInfo() {
-        IO.println("table: `" + tableName_ + "` | id: `" + id_ + "` | query: `" + query_ + "`");
+        IO.print("table: `" + tableName_ + "` | id: `" + describeId() + "` | query: `");
+        IO.print(query_);
+        IO.println("`");
     }
-}
 
+    private String describeId() {
+        if (!id_.isDone()) {
+            return "записывается";
+        }
+        try {
+            return String.valueOf(id_.join());
+        } catch (CompletionException e) {
+            return "не сохранено: " + e.getCause().getMessage();
+        }
+    }
+}
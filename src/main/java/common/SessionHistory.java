@@ -0,0 +1,235 @@
+package common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// История сохраненных результатов сеанса. Последние записи хранятся в куче, а более старые,
+// когда их размер превышает лимит (-Dhistory.memory=<КБ>, по умолчанию 1024), переносятся
+// в файл, отображенный в память (build/history/), и при выводе читаются оттуда по одной.
+// Запись, которая еще сохраняется в БД, в файл не переносится, чтобы ее статус обновился.
+public final class SessionHistory implements Iterable<SavedQuery>, AutoCloseable {
+    static final String MEMORY_PROPERTY = "history.memory";
+    private static final long DEFAULT_MEMORY_KILOBYTES = 1024;
+    private static final Path SPILL_DIRECTORY = Path.of("build", "history");
+    private static final int REGION_SIZE = 1 << 20;
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private static final byte SAVED = 0;
+    private static final byte FAILED = 1;
+    private static final byte WITHOUT_ID = 2;
+
+    private final String name;
+    private final long memoryLimit;
+    private final ArrayDeque<SavedQuery> recent = new ArrayDeque<>();
+    private long recentBytes = 0;
+    private volatile int size = 0;
+
+    private FileChannel spill = null;
+    private final ArrayList<MappedByteBuffer> regions = new ArrayList<>();
+    private long mappedEnd = 0;
+    private int spilled = 0;
+    private int spilledFailures = 0;
+    private boolean spillUnavailable = false;
+
+    SessionHistory(String name) {
+        this.name = name;
+        this.memoryLimit = Long.getLong(MEMORY_PROPERTY, DEFAULT_MEMORY_KILOBYTES) * 1024;
+    }
+
+    public void add(SavedQuery query) {
+        recent.addLast(query);
+        recentBytes += estimateBytes(query);
+        ++size;
+
+        while (recentBytes > memoryLimit && recent.size() > 1 && recent.peekFirst().id_().isDone()) {
+            SavedQuery oldest = recent.peekFirst();
+            if (!spill(oldest)) {
+                break;
+            }
+            recent.pollFirst();
+            recentBytes -= estimateBytes(oldest);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int failed() {
+        int failed = spilledFailures;
+        for (SavedQuery query : recent) {
+            failed += query.failed() ? 1 : 0;
+        }
+        return failed;
+    }
+
+    // Сначала записи из файла (по одной), затем записи из кучи.
+    @Override
+    public Iterator<SavedQuery> iterator() {
+        Iterator<SavedQuery> recentIterator = recent.iterator();
+
+        return new Iterator<>() {
+            private int region = 0;
+            private int offset = 0;
+            private int read = 0;
+
+            @Override
+            public boolean hasNext() {
+                return read < spilled || recentIterator.hasNext();
+            }
+
+            @Override
+            public SavedQuery next() {
+                if (read == spilled) {
+                    return recentIterator.next();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                MappedByteBuffer buffer = regions.get(region);
+                int length = buffer.getInt(offset);
+                if (length == 0) {
+                    buffer = regions.get(++region);
+                    offset = 0;
+                    length = buffer.getInt(offset);
+                }
+
+                byte[] payload = new byte[length];
+                buffer.get(offset + Integer.BYTES, payload);
+                offset += Integer.BYTES + length;
+                ++read;
+                return decode(payload);
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        regions.clear();
+        if (spill != null) {
+            spill.close();
+            spill = null;
+        }
+    }
+
+    private boolean spill(SavedQuery query) {
+        if (spillUnavailable) {
+            return false;
+        }
+
+        try {
+            byte[] payload = encode(query);
+            int recordSize = Integer.BYTES + payload.length;
+
+            MappedByteBuffer region = regions.isEmpty() ? null : regions.get(regions.size() - 1);
+            if (region == null || region.remaining() < recordSize + Integer.BYTES) {
+                if (spill == null) {
+                    Files.createDirectories(SPILL_DIRECTORY);
+                    Path file = Files.createTempFile(SPILL_DIRECTORY, name + "-", ".bin");
+                    spill = FileChannel.open(
+                        file,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE
+                    );
+                    file.toFile().deleteOnExit();
+                }
+                // Ноль в конце области означает переход к следующей; место под него оставляется всегда.
+                int regionSize = Math.max(REGION_SIZE, recordSize + Integer.BYTES);
+                region = spill.map(FileChannel.MapMode.READ_WRITE, mappedEnd, regionSize);
+                mappedEnd += regionSize;
+                regions.add(region);
+            }
+
+            region.putInt(payload.length);
+            region.put(payload);
+        } catch (IOException e) {
+            spillUnavailable = true;
+            System.err.println("Не удалось перенести историю сеанса в файл, она остается в памяти.");
+            System.err.println("Сообщение: " + e.getMessage());
+            return false;
+        }
+
+        ++spilled;
+        spilledFailures += query.failed() ? 1 : 0;
+        return true;
+    }
+
+    private static long estimateBytes(SavedQuery query) {
+        return ENTRY_OVERHEAD_BYTES + 2L * (queryLength(query.query_()) + query.tableName_().length());
+    }
+
+    // Описание не собирается в текст ради оценки: числа в нем считаются по фиксированной длине.
+    private static int queryLength(CharSequence query) {
+        return query instanceof Description description ? description.estimatedLength() : query.length();
+    }
+
+    private static byte[] encode(SavedQuery query) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            String id = query.id_().join();
+            out.writeByte(id == null ? WITHOUT_ID : SAVED);
+            writeText(out, id == null ? "" : id);
+        } catch (CompletionException e) {
+            out.writeByte(FAILED);
+            writeText(out, String.valueOf(e.getCause().getMessage()));
+        }
+        writeText(out, query.tableName_());
+        writeText(out, query.query_().toString());
+
+        return bytes.toByteArray();
+    }
+
+    private static SavedQuery decode(byte[] payload) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            byte state = in.readByte();
+            String id = readText(in);
+            String table = readText(in);
+            String query = readText(in);
+
+            CompletableFuture<String> future = switch (state) {
+                case SAVED -> CompletableFuture.completedFuture(id);
+                case WITHOUT_ID -> CompletableFuture.completedFuture(null);
+                default -> CompletableFuture.failedFuture(new SQLException(id));
+            };
+            return new SavedQuery(future, query, table);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        return new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+    }
+}
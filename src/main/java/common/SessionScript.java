@@ -0,0 +1,133 @@
+package common;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+// Сценарий сеанса: ответы пользователя по порядку вместе с временем на раздумье.
+// Файл текстовый, одна строка на ответ: "<пауза, мс>\t<ответ>", где \t, \n, \r и \\
+// экранированы. При воспроизведении паузы не выдерживаются.
+final class SessionScript implements AutoCloseable {
+    static final String RECORD_PROPERTY = "session.record";
+    static final String REPLAY_PROPERTY = "session.replay";
+    private static final String HEADER = "# session v1";
+
+    private final BufferedWriter writer;
+    private final ArrayList<String> answers;
+    private final long recordedThinkMillis;
+    private int position = 0;
+
+    private SessionScript(BufferedWriter writer, ArrayList<String> answers, long recordedThinkMillis) {
+        this.writer = writer;
+        this.answers = answers;
+        this.recordedThinkMillis = recordedThinkMillis;
+    }
+
+    static SessionScript record(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        writer.write(HEADER);
+        writer.newLine();
+        return new SessionScript(writer, null, 0);
+    }
+
+    static SessionScript replay(Path path) throws IOException {
+        ArrayList<String> answers = new ArrayList<>();
+        long thinkMillis = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (!HEADER.equals(header)) {
+                throw new IOException("Файл `" + path + "` не является сценарием сеанса.");
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab < 0) {
+                    throw new IOException("Поврежденная строка сценария: `" + line + "`.");
+                }
+                try {
+                    thinkMillis += Long.parseLong(line.substring(0, tab));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Поврежденная строка сценария: `" + line + "`.", e);
+                }
+                answers.add(unescape(line.substring(tab + 1)));
+            }
+        }
+
+        return new SessionScript(null, answers, thinkMillis);
+    }
+
+    boolean replaying() {
+        return answers != null;
+    }
+
+    int size() {
+        return answers.size();
+    }
+
+    long recordedThinkMillis() {
+        return recordedThinkMillis;
+    }
+
+    // Следующий ответ из сценария или null, если сценарий исчерпан.
+    String nextAnswer() {
+        return position < answers.size() ? answers.get(position++) : null;
+    }
+
+    void answered(String answer, long thinkNanos) throws IOException {
+        writer.write(Long.toString(thinkNanos / 1_000_000));
+        writer.write('\t');
+        writer.write(escape(answer));
+        writer.newLine();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '\t' -> escaped.append("\\t");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\\' -> escaped.append("\\\\");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static String unescape(String value) {
+        StringBuilder plain = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if (c != '\\' || i + 1 == value.length()) {
+                plain.append(c);
+                continue;
+            }
+            char next = value.charAt(++i);
+            plain.append(switch (next) {
+                case 't' -> '\t';
+                case 'n' -> '\n';
+                case 'r' -> '\r';
+                default -> next;
+            });
+        }
+        return plain.toString();
+    }
+}
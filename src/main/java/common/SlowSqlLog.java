@@ -0,0 +1,277 @@
+package common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Журнал медленных запросов: каждое выполнение запроса и запрос метаданных замеряется, и если
+// он дольше порога (-Dsql.slow=<мс>, по умолчанию 500, отрицательное значение отключает),
+// в build/slow-sql.log пишется текст SQL с типами параметров вместо значений. Для SELECT
+// план EXPLAIN FORMAT=JSON с теми же параметрами сохраняется в build/explain/.
+final class SlowSqlLog {
+    static final String THRESHOLD_PROPERTY = "sql.slow";
+    private static final long DEFAULT_THRESHOLD_MILLIS = 500;
+    private static final Path LOG_FILE = Path.of("build", "slow-sql.log");
+    private static final Path EXPLAIN_DIRECTORY = Path.of("build", "explain");
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private record Binding(Method setter, Object[] args) { }
+
+    private final Connection connection;
+    private final long thresholdNanos;
+    private final AtomicInteger explains = new AtomicInteger();
+
+    private SlowSqlLog(Connection connection, long thresholdNanos) {
+        this.connection = connection;
+        this.thresholdNanos = thresholdNanos;
+    }
+
+    static Connection wrap(Connection connection) {
+        long thresholdMillis = Long.getLong(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD_MILLIS);
+        if (thresholdMillis < 0) {
+            return connection;
+        }
+
+        SlowSqlLog log = new SlowSqlLog(connection, thresholdMillis * 1_000_000);
+        return log.proxy(Connection.class, new ConnectionHandler(log, connection));
+    }
+
+    private <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(
+            SlowSqlLog.class.getClassLoader(),
+            new Class<?>[]{type},
+            handler
+        ));
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final SlowSqlLog log;
+        private final Connection target;
+
+        ConnectionHandler(SlowSqlLog log, Connection target) {
+            this.log = log;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = call(target, method, args);
+            String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+
+            if (result instanceof CallableStatement statement) {
+                return log.proxy(CallableStatement.class, new StatementHandler(log, statement, sql));
+            }
+            if (result instanceof PreparedStatement statement) {
+                return log.proxy(PreparedStatement.class, new StatementHandler(log, statement, sql));
+            }
+            if (result instanceof Statement statement) {
+                return log.proxy(Statement.class, new StatementHandler(log, statement, null));
+            }
+            if (result instanceof DatabaseMetaData metaData) {
+                return log.proxy(DatabaseMetaData.class, new MetaDataHandler(log, metaData));
+            }
+            return result;
+        }
+    }
+
+    // Запоминает параметры PreparedStatement, чтобы описать их в журнале и повторить в EXPLAIN.
+    private static final class StatementHandler implements InvocationHandler {
+        private final SlowSqlLog log;
+        private final Statement target;
+        private final String sql;
+        private final TreeMap<Integer, Binding> bindings = new TreeMap<>();
+        private int batched = 0;
+
+        StatementHandler(SlowSqlLog log, Statement target, String sql) {
+            this.log = log;
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                bindings.put(index, new Binding(method, args));
+            } else if (name.equals("clearParameters")) {
+                bindings.clear();
+            } else if (name.equals("addBatch") && (args == null || args.length == 0)) {
+                ++batched;
+            } else if (name.equals("clearBatch")) {
+                batched = 0;
+            }
+
+            if (!name.startsWith("execute")) {
+                return call(target, method, args);
+            }
+
+            String executed = args != null && args.length > 0 && args[0] instanceof String text ? text : sql;
+            long started = System.nanoTime();
+            try {
+                return call(target, method, args);
+            } finally {
+                long elapsed = System.nanoTime() - started;
+                if (elapsed >= log.thresholdNanos && executed != null) {
+                    boolean batch = name.equals("executeBatch");
+                    log.report(
+                        elapsed,
+                        executed,
+                        describe(bindings) + (batch ? ", строк в пакете: " + batched : ""),
+                        batch ? null : bindings
+                    );
+                }
+                if (name.equals("executeBatch")) {
+                    batched = 0;
+                }
+            }
+        }
+    }
+
+    private static final class MetaDataHandler implements InvocationHandler {
+        private final SlowSqlLog log;
+        private final DatabaseMetaData target;
+
+        MetaDataHandler(SlowSqlLog log, DatabaseMetaData target) {
+            this.log = log;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getReturnType() != ResultSet.class) {
+                return call(target, method, args);
+            }
+
+            long started = System.nanoTime();
+            try {
+                return call(target, method, args);
+            } finally {
+                long elapsed = System.nanoTime() - started;
+                if (elapsed >= log.thresholdNanos) {
+                    log.report(
+                        elapsed,
+                        "DatabaseMetaData." + method.getName()
+                            + Arrays.deepToString(args == null ? new Object[0] : args),
+                        "без параметров",
+                        null
+                    );
+                }
+            }
+        }
+    }
+
+    // Значения параметров в журнал не попадают: только тип и длина строк.
+    private static String describe(Map<Integer, Binding> bindings) {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<Integer, Binding> entry : bindings.entrySet()) {
+            Object value = entry.getValue().args()[1];
+            text.append(text.isEmpty() ? "" : ", ").append('?').append(entry.getKey()).append('=');
+
+            if (value == null) {
+                text.append("NULL");
+            } else if (value instanceof CharSequence chars) {
+                text.append("<строка, ").append(chars.length()).append(" симв.>");
+            } else {
+                text.append('<').append(value.getClass().getSimpleName()).append('>');
+            }
+        }
+        return text.isEmpty() ? "без параметров" : text.toString();
+    }
+
+    private synchronized void report(
+        long elapsedNanos,
+        String sql,
+        String parameters,
+        Map<Integer, Binding> bindings
+    ) {
+        String explain = "";
+        if (bindings != null && sql.stripLeading().regionMatches(true, 0, "SELECT", 0, 6)) {
+            explain = " " + explain(sql, bindings);
+        }
+
+        String line = String.format(
+            Locale.ROOT,
+            "%s\t%.1f мс\t%s\t[%s]%s%n",
+            LocalDateTime.now(),
+            elapsedNanos / 1e6,
+            sql.replaceAll("\\s+", " "),
+            parameters,
+            explain
+        );
+
+        try {
+            Files.createDirectories(LOG_FILE.getParent());
+            Files.writeString(
+                LOG_FILE,
+                line,
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND
+            );
+        } catch (IOException e) {
+            System.err.println("Не удалось записать журнал медленных запросов: " + e.getMessage());
+        }
+    }
+
+    // План выполняется на исходном соединении, поэтому сам в журнал и статистику не попадает.
+    private String explain(String sql, Map<Integer, Binding> bindings) {
+        for (Binding binding : bindings.values()) {
+            for (Object arg : binding.args()) {
+                if (arg instanceof Reader || arg instanceof InputStream) {
+                    return "(EXPLAIN пропущен: параметр-поток)";
+                }
+            }
+        }
+
+        Path file = EXPLAIN_DIRECTORY.resolve(
+            LocalDateTime.now().format(FILE_TIME) + "-" + explains.incrementAndGet() + ".json"
+        );
+
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN FORMAT=JSON " + sql)) {
+            for (Binding binding : bindings.values()) {
+                binding.setter().invoke(statement, binding.args());
+            }
+            try (ResultSet plan = statement.executeQuery()) {
+                if (!plan.next()) {
+                    return "(EXPLAIN пуст)";
+                }
+                Files.createDirectories(EXPLAIN_DIRECTORY);
+                Files.writeString(file, plan.getString(1), StandardCharsets.UTF_8);
+            }
+            return "EXPLAIN: " + file;
+        } catch (SQLException | IOException | ReflectiveOperationException e) {
+            return "(EXPLAIN не удался: " + e.getMessage() + ")";
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package common;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Подготовленные INSERT одного подключения по ключу (таблица, столбцы по порядку). Текст
+// запроса собирается и разбирается сервером только при промахе; вытесненные (LRU) и
+// сломанные выражения закрываются. Используется из одного потока — потока фоновой записи.
+final class StatementCache implements AutoCloseable {
+    private record Key(String table, List<String> columns) { }
+
+    private final Connection connection;
+    private final LinkedHashMap<Key, PreparedStatement> statements;
+    private final CacheCounter counter = RuntimeStatistics.cache("statements");
+
+    StatementCache(Connection connection, int capacity) {
+        this.connection = connection;
+        this.statements = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, PreparedStatement> eldest) {
+                if (size() > capacity) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    Connection connection() {
+        return connection;
+    }
+
+    // Выражение не закрывается вызывающим: оно остается в кэше до вытеснения или close().
+    PreparedStatement prepare(String table, List<String> columns, Supplier<String> query) throws SQLException {
+        Key key = new Key(table, columns);
+        PreparedStatement statement = statements.get(key);
+        if (statement != null) {
+            counter.hit();
+            return statement;
+        }
+
+        counter.miss();
+        statement = connection.prepareStatement(query.get(), Statement.RETURN_GENERATED_KEYS);
+        statements.put(key, statement);
+        return statement;
+    }
+
+    // После ошибки выполнения выражение подготавливается заново (например, таблицу изменили).
+    void evict(String table, List<String> columns) {
+        PreparedStatement statement = statements.remove(new Key(table, columns));
+        if (statement != null) {
+            closeQuietly(statement);
+        }
+    }
+
+    @Override
+    public void close() {
+        statements.values().forEach(StatementCache::closeQuietly);
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("Не удалось закрыть подготовленный запрос: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package common;
+
+import static common.Model.IO;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Время команд и их этапов, обращения к БД и число строк по командам. Команду задает
+// Control, этапы отмечает Model; JDBC-вызовы считаются прокси над соединением.
+public final class Telemetry {
+    public enum Stage {
+        COMMAND("команда"),
+        SAVE("сохранение"),
+        METADATA("метаданные"),
+        INSERT("вставка"),
+        EXPORT("экспорт в Excel");
+
+        private final String description;
+
+        Stage(String description) {
+            this.description = description;
+        }
+
+        public String describe() {
+            return description;
+        }
+    }
+
+    private static final class CommandStats {
+        private final EnumMap<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+        private final LongAdder roundTrips = new LongAdder();
+        private final LongAdder rowsRead = new LongAdder();
+        private final LongAdder rowsWritten = new LongAdder();
+
+        CommandStats() {
+            for (Stage stage : Stage.values()) {
+                histograms.put(stage, new LatencyHistogram());
+            }
+        }
+    }
+
+    private static final String NO_COMMAND = "-";
+    private static final Map<String, CommandStats> commands = new ConcurrentHashMap<>();
+    private static final ThreadLocal<String> currentCommand = ThreadLocal.withInitial(() -> NO_COMMAND);
+
+    private Telemetry() { }
+
+    // Все последующие этапы и обращения к БД в этом потоке относятся к команде.
+    public static void beginCommand(String command) {
+        currentCommand.set(command.trim());
+    }
+
+    public static void endCommand(long nanos) {
+        record(Stage.COMMAND, nanos);
+        currentCommand.set(NO_COMMAND);
+    }
+
+    // Задача, выполняемая в другом потоке, учитывается в статистике команды, которая ее создала.
+    public static Runnable bind(Runnable task) {
+        String command = currentCommand.get();
+        return () -> {
+            currentCommand.set(command);
+            try {
+                task.run();
+            } finally {
+                currentCommand.set(NO_COMMAND);
+            }
+        };
+    }
+
+    public static void record(Stage stage, long nanos) {
+        current().histograms.get(stage).record(nanos);
+    }
+
+    public static Connection instrument(Connection connection) {
+        return wrap(Connection.class, connection);
+    }
+
+    public static void showReport() {
+        if (commands.isEmpty()) {
+            IO.println("\nСтатистика производительности пока не собрана.");
+            return;
+        }
+
+        IO.println("\nСтатистика производительности:");
+        IO.println(String.format(
+            "%-8s %-16s %8s %12s %12s %12s",
+            "команда", "этап", "число", "p50, мс", "p99, мс", "макс, мс"
+        ));
+
+        for (Map.Entry<String, CommandStats> entry : commands.entrySet()) {
+            for (Map.Entry<Stage, LatencyHistogram> stage : entry.getValue().histograms.entrySet()) {
+                LatencyHistogram histogram = stage.getValue();
+                if (histogram.count() == 0) {
+                    continue;
+                }
+                IO.println(String.format(
+                    "%-8s %-16s %8d %12.3f %12.3f %12.3f",
+                    entry.getKey(),
+                    stage.getKey().describe(),
+                    histogram.count(),
+                    histogram.percentile(0.50) / 1e6,
+                    histogram.percentile(0.99) / 1e6,
+                    histogram.max() / 1e6
+                ));
+            }
+        }
+
+        IO.println("\nОбращения к БД:");
+        for (Map.Entry<String, CommandStats> entry : commands.entrySet()) {
+            CommandStats stats = entry.getValue();
+            long runs = Math.max(1, stats.histograms.get(Stage.COMMAND).count());
+            IO.println(String.format(
+                "команда %s: обращений %d (%.1f на запуск), строк прочитано %d, записано %d",
+                entry.getKey(),
+                stats.roundTrips.sum(),
+                (double) stats.roundTrips.sum() / runs,
+                stats.rowsRead.sum(),
+                stats.rowsWritten.sum()
+            ));
+        }
+    }
+
+    private static CommandStats current() {
+        return commands.computeIfAbsent(currentCommand.get(), key -> new CommandStats());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T wrap(Class<T> type, T target) {
+        return (T) Proxy.newProxyInstance(
+            Telemetry.class.getClassLoader(),
+            new Class<?>[]{type},
+            new Counting(target)
+        );
+    }
+
+    // Обращением к серверу считается каждое выполнение запроса, пакет, запрос метаданных,
+    // commit и rollback. Прочитанные строки считаются по ResultSet.next().
+    private static final class Counting implements InvocationHandler {
+        private final Object target;
+
+        Counting(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            String name = method.getName();
+            CommandStats stats = current();
+
+            if (target instanceof ResultSet) {
+                if (name.equals("next") && Boolean.TRUE.equals(result)) {
+                    stats.rowsRead.increment();
+                }
+                return result;
+            }
+
+            if (target instanceof DatabaseMetaData && result instanceof ResultSet) {
+                stats.roundTrips.increment();
+            } else if (target instanceof Statement && name.startsWith("execute")) {
+                stats.roundTrips.increment();
+                if (result instanceof Integer rows) {
+                    stats.rowsWritten.add(Math.max(0, rows));
+                } else if (result instanceof int[] batch) {
+                    for (int rows : batch) {
+                        stats.rowsWritten.add(Math.max(0, rows));
+                    }
+                }
+            } else if (target instanceof Connection
+                && (name.equals("commit") || name.equals("rollback"))
+            ) {
+                stats.roundTrips.increment();
+            }
+
+            Class<?> type = method.getReturnType();
+            if (result == null || !type.isInterface()) {
+                return result;
+            }
+            if (type == CallableStatement.class) {
+                return wrap(CallableStatement.class, (CallableStatement) result);
+            }
+            if (type == PreparedStatement.class) {
+                return wrap(PreparedStatement.class, (PreparedStatement) result);
+            }
+            if (type == Statement.class) {
+                return wrap(Statement.class, (Statement) result);
+            }
+            if (type == ResultSet.class) {
+                return wrap(ResultSet.class, (ResultSet) result);
+            }
+            if (type == DatabaseMetaData.class) {
+                return wrap(DatabaseMetaData.class, (DatabaseMetaData) result);
+            }
+            return result;
+        }
+    }
+}
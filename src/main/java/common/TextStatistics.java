@@ -0,0 +1,322 @@
+package common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Частоты символов, биграмм и триграмм (по кодовым единицам UTF-16), число кодовых точек и
+// длина в UTF-8. Текст читается окнами, поэтому годится и для отображенных в память файлов.
+public final class TextStatistics {
+    private static final int LATIN1_SIZE = 256;
+    private static final int CHAR_COUNT = Character.MAX_VALUE + 1;
+
+    public record Entry(String gram, int count) { }
+
+    private static final Comparator<Entry> ENTRY_ORDER = Comparator
+        .comparingInt(Entry::count)
+        .reversed()
+        .thenComparing(Entry::gram);
+
+    // Четыре независимых счетчика для Latin-1: соседние одинаковые символы не ждут друг
+    // друга на чтении-изменении-записи одной ячейки, и цикл идет с полной скоростью.
+    private final int[][] latin1 = new int[4][LATIN1_SIZE];
+    private final int[] latin1Bigrams = new int[LATIN1_SIZE * LATIN1_SIZE];
+    private int[] wideChars = null;
+    private final LongIntMap wideBigrams = new LongIntMap();
+    private final LongIntMap trigrams = new LongIntMap();
+    private long length = 0;
+    private long codePoints = 0;
+    private long utf8Bytes = 0;
+
+    private TextStatistics() { }
+
+    public static TextStatistics of(CharSequence text) {
+        TextStatistics statistics = new TextStatistics();
+        char[] window = new char[ChunkedText.CHUNK_SIZE + 2];
+        int carried = 0;
+
+        for (int from = 0; from < text.length(); ) {
+            int count = Math.min(ChunkedText.CHUNK_SIZE, text.length() - from);
+            CharSequences.getChars(text, from, from + count, window, carried);
+            statistics.accept(window, carried, carried + count);
+
+            // Два последних символа переходят в следующее окно, чтобы n-граммы на стыке учлись.
+            int keep = Math.min(2, carried + count);
+            System.arraycopy(window, carried + count - keep, window, 0, keep);
+            carried = keep;
+            from += count;
+        }
+
+        return statistics;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public long codePoints() {
+        return codePoints;
+    }
+
+    public long utf8Bytes() {
+        return utf8Bytes;
+    }
+
+    public int distinctChars() {
+        int distinct = 0;
+        for (int c = 0; c < CHAR_COUNT; ++c) {
+            distinct += charCount(c) > 0 ? 1 : 0;
+        }
+        return distinct;
+    }
+
+    public List<Entry> topChars(int limit) {
+        PriorityQueue<Entry> top = new PriorityQueue<>(ENTRY_ORDER.reversed());
+        for (int c = 0; c < CHAR_COUNT; ++c) {
+            offer(top, limit, c, 1, charCount(c));
+        }
+        return sorted(top);
+    }
+
+    public List<Entry> topBigrams(int limit) {
+        PriorityQueue<Entry> top = new PriorityQueue<>(ENTRY_ORDER.reversed());
+        for (int key = 0; key < latin1Bigrams.length; ++key) {
+            offer(top, limit, ((long) (key >>> 8) << 16) | (key & 0xFF), 2, latin1Bigrams[key]);
+        }
+        wideBigrams.forEach((key, count) -> offer(top, limit, key, 2, count));
+        return sorted(top);
+    }
+
+    public List<Entry> topTrigrams(int limit) {
+        PriorityQueue<Entry> top = new PriorityQueue<>(ENTRY_ORDER.reversed());
+        trigrams.forEach((key, count) -> offer(top, limit, key, 3, count));
+        return sorted(top);
+    }
+
+    // Сводка для вывода и сохранения: без построчных записей по каждому символу.
+    public String summary(int limit) {
+        return "символов " + length
+            + ", кодовых точек " + codePoints
+            + ", байт UTF-8 " + utf8Bytes
+            + ", различных символов " + distinctChars()
+            + "; символы: " + format(topChars(limit))
+            + "; биграммы: " + format(topBigrams(limit))
+            + "; триграммы: " + format(topTrigrams(limit));
+    }
+
+    public static String format(List<Entry> entries) {
+        StringBuilder text = new StringBuilder();
+        for (Entry entry : entries) {
+            if (!text.isEmpty()) {
+                text.append(", ");
+            }
+            text.append('\'');
+            for (char c : entry.gram().toCharArray()) {
+                switch (c) {
+                    case '\n' -> text.append("\\n");
+                    case '\r' -> text.append("\\r");
+                    case '\t' -> text.append("\\t");
+                    default -> text.append(c);
+                }
+            }
+            text.append("'=").append(entry.count());
+        }
+        return text.isEmpty() ? "нет" : text.toString();
+    }
+
+    private void accept(char[] chars, int from, int to) {
+        int maxChar = 0;
+        for (int i = from; i < to; ++i) {
+            maxChar = Math.max(maxChar, chars[i]);
+        }
+        if (from > 0) {
+            maxChar = Math.max(maxChar, Math.max(chars[0], chars[from - 1]));
+        }
+
+        if (maxChar < LATIN1_SIZE) {
+            acceptLatin1(chars, from, to);
+        } else {
+            acceptWide(chars, from, to);
+        }
+        countTrigrams(chars, from, to);
+        length += to - from;
+    }
+
+    private void acceptLatin1(char[] chars, int from, int to) {
+        int[] h0 = latin1[0];
+        int[] h1 = latin1[1];
+        int[] h2 = latin1[2];
+        int[] h3 = latin1[3];
+
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            ++h0[chars[i]];
+            ++h1[chars[i + 1]];
+            ++h2[chars[i + 2]];
+            ++h3[chars[i + 3]];
+        }
+        for (; i < to; ++i) {
+            ++h0[chars[i]];
+        }
+
+        for (int j = Math.max(1, from); j < to; ++j) {
+            ++latin1Bigrams[(chars[j - 1] << 8) | chars[j]];
+        }
+
+        // В Latin-1 нет суррогатов: кодовых точек столько же, сколько символов,
+        // а в UTF-8 символ занимает один байт до 0x80 и два после.
+        int wide = 0;
+        for (int j = from; j < to; ++j) {
+            wide += chars[j] >>> 7;
+        }
+        codePoints += to - from;
+        utf8Bytes += to - from + wide;
+    }
+
+    private void acceptWide(char[] chars, int from, int to) {
+        if (wideChars == null) {
+            wideChars = new int[CHAR_COUNT];
+        }
+
+        for (int i = from; i < to; ++i) {
+            char c = chars[i];
+            if (c < LATIN1_SIZE) {
+                ++latin1[0][c];
+            } else {
+                ++wideChars[c];
+            }
+
+            if (i > 0) {
+                char previous = chars[i - 1];
+                if ((previous | c) < LATIN1_SIZE) {
+                    ++latin1Bigrams[(previous << 8) | c];
+                } else {
+                    wideBigrams.increment(((long) previous << 16) | c);
+                }
+            }
+
+            boolean pairedLow = Character.isLowSurrogate(c) && i > 0
+                && Character.isHighSurrogate(chars[i - 1]);
+            if (!pairedLow) {
+                ++codePoints;
+            }
+            utf8Bytes += c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isSurrogate(c) ? 2 : 3;
+        }
+    }
+
+    private void countTrigrams(char[] chars, int from, int to) {
+        for (int i = Math.max(2, from); i < to; ++i) {
+            trigrams.increment(((long) chars[i - 2] << 32) | ((long) chars[i - 1] << 16) | chars[i]);
+        }
+    }
+
+    private int charCount(int c) {
+        if (c < LATIN1_SIZE) {
+            return latin1[0][c] + latin1[1][c] + latin1[2][c] + latin1[3][c];
+        }
+        return wideChars == null ? 0 : wideChars[c];
+    }
+
+    private static void offer(PriorityQueue<Entry> top, int limit, long key, int length, int count) {
+        if (count == 0) {
+            return;
+        }
+        if (top.size() == limit && count < top.peek().count()) {
+            return;
+        }
+        Entry entry = new Entry(decode(key, length), count);
+        if (top.size() < limit) {
+            top.add(entry);
+        } else if (ENTRY_ORDER.compare(entry, top.peek()) < 0) {
+            top.poll();
+            top.add(entry);
+        }
+    }
+
+    private static List<Entry> sorted(PriorityQueue<Entry> top) {
+        ArrayList<Entry> entries = new ArrayList<>(top);
+        entries.sort(ENTRY_ORDER);
+        return entries;
+    }
+
+    private static String decode(long key, int length) {
+        char[] gram = new char[length];
+        for (int i = length - 1; i >= 0; --i) {
+            gram[i] = (char) (key & 0xFFFF);
+            key >>>= 16;
+        }
+        return new String(gram);
+    }
+
+    // Счетчики по ключу long с открытой адресацией: без упаковки в Long/Integer.
+    private static final class LongIntMap {
+        private static final long EMPTY_KEY = -1L;
+
+        private long[] keys = new long[1024];
+        private int[] values = new int[1024];
+        private int size = 0;
+
+        LongIntMap() {
+            Arrays.fill(keys, EMPTY_KEY);
+        }
+
+        void increment(long key) {
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+
+            while (keys[slot] != EMPTY_KEY) {
+                if (keys[slot] == key) {
+                    ++values[slot];
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            keys[slot] = key;
+            values[slot] = 1;
+            if (++size * 2 > keys.length) {
+                rehash();
+            }
+        }
+
+        void forEach(Visitor visitor) {
+            for (int i = 0; i < keys.length; ++i) {
+                if (keys[i] != EMPTY_KEY) {
+                    visitor.visit(keys[i], values[i]);
+                }
+            }
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            Arrays.fill(keys, EMPTY_KEY);
+
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; ++i) {
+                if (oldKeys[i] == EMPTY_KEY) {
+                    continue;
+                }
+                int slot = slot(oldKeys[i], mask);
+                while (keys[slot] != EMPTY_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+
+        @FunctionalInterface
+        interface Visitor {
+            void visit(long key, int count);
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Журнал результатов, ожидающих записи в БД. Строка попадает в журнал до отправки в JDBC,
+// после успешной вставки дописывается отметка о завершении; строки без отметки при
+// следующем подключении вставляются пакетами. Если вставка не удалась из-за связи с
+// сервером (SQLState 08, SQLTransientException), строка ждет повтора (retry) в этом же
+// сеансе; строки, которые БД отклонила, переносятся в файл <журнал>.rejected и отмечаются
+// завершенными, чтобы не повторяться при каждом запуске. Файл отображен в память и только
+// дописывается. Запись: [длина][CRC32][данные], длина пишется последней, поэтому
+// оборванный при сбое хвост распознается по нулевой длине или неверной сумме. При открытии
+// журнал сжимается: несохраненные строки переписываются в новый файл, который заменяет старый.
+final class WriteAheadLog implements AutoCloseable {
+    private static final int REGION_SIZE = 1 << 20;
+    private static final int HEADER_SIZE = Integer.BYTES * 2;
+    private static final int REPLAY_BATCH_SIZE = 100;
+    private static final byte ENTRY = 1;
+    private static final byte DONE = 2;
+
+    private static final byte NULL_VALUE = 0;
+    private static final byte BOOLEAN_VALUE = 1;
+    private static final byte INT_VALUE = 2;
+    private static final byte LONG_VALUE = 3;
+    private static final byte DOUBLE_VALUE = 4;
+    private static final byte TEXT_VALUE = 5;
+
+    record Entry(long sequence, String table, List<String> columns, List<Object> values) { }
+
+    record Replay(int inserted, int remaining) { }
+
+    private record Scan(long position, long nextSequence) { }
+
+    private final FileChannel channel;
+    private final FileLock lock;
+    private final LinkedHashMap<Long, Entry> pending;
+    // Строки, которые можно повторить: из прошлых сеансов и не записанные из-за связи.
+    private final LinkedHashSet<Long> retry;
+    private final Path rejected;
+    private MappedByteBuffer region = null;
+    private long regionStart = 0;
+    private long position;
+    private long nextSequence;
+
+    private WriteAheadLog(
+        FileChannel channel,
+        FileLock lock,
+        LinkedHashMap<Long, Entry> pending,
+        Path path,
+        long position,
+        long nextSequence
+    ) {
+        this.channel = channel;
+        this.lock = lock;
+        this.pending = pending;
+        this.retry = new LinkedHashSet<>(pending.keySet());
+        this.rejected = path.resolveSibling(path.getFileName() + ".rejected");
+        this.position = position;
+        this.nextSequence = nextSequence;
+    }
+
+    // Журнал открывается одним процессом: второй сеанс той же модели получит IOException.
+    static WriteAheadLog open(Path path) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        FileChannel channel = FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE
+        );
+
+        try {
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                throw new IOException("Журнал " + path + " используется другим сеансом.");
+            }
+
+            LinkedHashMap<Long, Entry> pending = new LinkedHashMap<>();
+            Scan scan = scan(channel, pending);
+            if (pending.isEmpty()) {
+                // Все строки сохранены: журнал начинается заново.
+                channel.truncate(0);
+                return new WriteAheadLog(channel, lock, pending, path, 0, scan.nextSequence());
+            }
+
+            WriteAheadLog compacted = compact(path, pending, scan.nextSequence());
+            lock.release();
+            channel.close();
+            return compacted;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Несохраненные строки (с прежними номерами) пишутся в новый файл, который блокируется
+    // до замены старого; отметки о завершении и оборванный хвост в него не попадают.
+    private static WriteAheadLog compact(
+        Path path,
+        LinkedHashMap<Long, Entry> pending,
+        long nextSequence
+    ) throws IOException {
+        Path fresh = path.resolveSibling(path.getFileName() + ".compact");
+        FileChannel channel = FileChannel.open(
+            fresh,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE
+        );
+
+        try {
+            WriteAheadLog log = new WriteAheadLog(channel, channel.lock(), new LinkedHashMap<>(), path, 0, nextSequence);
+            for (Entry entry : pending.values()) {
+                log.write(encode(entry));
+                log.pending.put(entry.sequence(), entry);
+                log.retry.add(entry.sequence());
+            }
+
+            try {
+                Files.move(fresh, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(fresh, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return log;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            Files.deleteIfExists(fresh);
+            throw e;
+        }
+    }
+
+    synchronized long append(String table, List<String> columns, List<Object> values) throws IOException {
+        Entry entry = new Entry(nextSequence++, table, List.copyOf(columns), new ArrayList<>(values));
+        write(encode(entry));
+        pending.put(entry.sequence(), entry);
+        return entry.sequence();
+    }
+
+    synchronized void done(long sequence) throws IOException {
+        ByteBuffer payload = ByteBuffer.allocate(1 + Long.BYTES).put(DONE).putLong(sequence);
+        write(payload.array());
+        pending.remove(sequence);
+        retry.remove(sequence);
+    }
+
+    synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    synchronized int retryCount() {
+        return retry.size();
+    }
+
+    // Вставка строки не удалась: при ошибке связи строка ждет повтора, иначе отклоняется.
+    synchronized void failed(long sequence, Throwable error) {
+        Entry entry = pending.get(sequence);
+        if (entry == null) {
+            return;
+        }
+        if (isTransient(error)) {
+            retry.add(sequence);
+        } else {
+            reject(entry, error.getMessage());
+        }
+    }
+
+    // Повторять имеет смысл только ошибки связи и временные ошибки (блокировки, тайм-ауты).
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                String state = sqlException.getSQLState();
+                return sqlException instanceof SQLTransientException || state != null && state.startsWith("08");
+            }
+        }
+        return false;
+    }
+
+    // Повтор в ходе сеанса, когда сервер снова ответил: строки вставляются по одной в режиме
+    // автокоммита подключения. Первая же ошибка связи прекращает повтор.
+    synchronized Replay retry(Connection connection) throws SQLException {
+        int inserted = 0;
+        for (Long sequence : List.copyOf(retry)) {
+            if (insertRow(connection, pending.get(sequence))) {
+                ++inserted;
+            }
+        }
+        return new Replay(inserted, retry.size());
+    }
+
+    // Строки, ожидающие повтора, вставляются пакетами по таблице и набору столбцов, каждый
+    // пакет в своей транзакции. Если пакет не вставился, его строки повторяются по одной.
+    // Ошибка связи прерывает восстановление (оставшиеся строки повторяются позже), а строки,
+    // которые БД отклонила, переносятся в файл отклоненных.
+    synchronized Replay replay(Connection connection) throws SQLException {
+        LinkedHashMap<String, List<Entry>> groups = new LinkedHashMap<>();
+        for (Long sequence : retry) {
+            Entry entry = pending.get(sequence);
+            groups.computeIfAbsent(entry.table() + "\n" + entry.columns(), key -> new ArrayList<>()).add(entry);
+        }
+
+        int inserted = 0;
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+
+        try {
+            for (List<Entry> group : groups.values()) {
+                for (int from = 0; from < group.size(); from += REPLAY_BATCH_SIZE) {
+                    List<Entry> batch = group.subList(from, Math.min(group.size(), from + REPLAY_BATCH_SIZE));
+                    inserted += insertBatch(connection, batch);
+                }
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        return new Replay(inserted, retry.size());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            region = null;
+            channel.truncate(pending.isEmpty() ? 0 : position);
+            lock.release();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private int insertBatch(Connection connection, List<Entry> batch) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(insertQuery(batch.get(0)))) {
+            for (Entry entry : batch) {
+                bind(statement, entry);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            if (isTransient(e)) {
+                throw e;
+            }
+
+            int inserted = 0;
+            for (Entry entry : batch) {
+                if (insertRow(connection, entry)) {
+                    ++inserted;
+                }
+            }
+            return inserted;
+        }
+
+        markDone(batch);
+        return batch.size();
+    }
+
+    // Вставляет одну строку (в транзакции, если автокоммит выключен). Ошибка связи выбрасывается,
+    // строка, которую БД отклонила, переносится в файл отклоненных.
+    private boolean insertRow(Connection connection, Entry entry) throws SQLException {
+        boolean transaction = !connection.getAutoCommit();
+        try (PreparedStatement statement = connection.prepareStatement(insertQuery(entry))) {
+            bind(statement, entry);
+            statement.executeUpdate();
+            if (transaction) {
+                connection.commit();
+            }
+        } catch (SQLException e) {
+            if (transaction) {
+                connection.rollback();
+            }
+            if (isTransient(e)) {
+                throw e;
+            }
+            reject(entry, e.getMessage());
+            return false;
+        }
+
+        markDone(List.of(entry));
+        return true;
+    }
+
+    private void markDone(List<Entry> entries) {
+        try {
+            for (Entry entry : entries) {
+                done(entry.sequence());
+            }
+        } catch (IOException e) {
+            System.err.println("Не удалось отметить восстановленные значения в журнале: " + e.getMessage());
+        }
+    }
+
+    // Строка дописывается в файл отклоненных и отмечается завершенной; если файл недоступен,
+    // она остается в журнале.
+    private void reject(Entry entry, String reason) {
+        retry.remove(entry.sequence());
+        String line = "`" + entry.table() + "` (" + String.join(", ", entry.columns()) + ") = " + entry.values()
+            + " — " + reason + System.lineSeparator();
+
+        try {
+            Files.writeString(
+                rejected,
+                line,
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND
+            );
+            done(entry.sequence());
+            System.err.println("Значение таблицы `" + entry.table() + "` отклонено БД и перенесено в " + rejected
+                + ": " + reason);
+        } catch (IOException e) {
+            System.err.println("Не удалось перенести отклоненное значение в " + rejected + ": " + e.getMessage());
+        }
+    }
+
+    private static String insertQuery(Entry entry) {
+        StringBuilder columns = new StringBuilder();
+        StringBuilder placeholders = new StringBuilder();
+        for (String column : entry.columns()) {
+            if (!columns.isEmpty()) {
+                columns.append(", ");
+                placeholders.append(", ");
+            }
+            columns.append('`').append(column).append('`');
+            placeholders.append('?');
+        }
+        return "INSERT INTO `" + entry.table() + "` (" + columns + ") VALUES (" + placeholders + ")";
+    }
+
+    private static void bind(PreparedStatement statement, Entry entry) throws SQLException {
+        for (int i = 0; i < entry.values().size(); ++i) {
+            Model.bindValue(statement, i + 1, entry.values().get(i));
+        }
+    }
+
+    private static byte[] encode(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeByte(ENTRY);
+        out.writeLong(entry.sequence());
+        writeText(out, entry.table());
+        out.writeInt(entry.columns().size());
+        for (int i = 0; i < entry.columns().size(); ++i) {
+            writeText(out, entry.columns().get(i));
+            writeValue(out, entry.values().get(i));
+        }
+        return bytes.toByteArray();
+    }
+
+    private void write(byte[] payload) throws IOException {
+        int size = HEADER_SIZE + payload.length;
+        if (region == null || position + size > regionStart + region.capacity()) {
+            regionStart = position;
+            region = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(REGION_SIZE, size));
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        int offset = (int) (position - regionStart);
+        region.putInt(offset + Integer.BYTES, (int) crc.getValue());
+        region.put(offset + HEADER_SIZE, payload);
+        region.putInt(offset, payload.length);
+        region.force(offset, size);
+        position += size;
+    }
+
+    // Находит конец последней целой записи и следующий свободный номер.
+    private static Scan scan(FileChannel channel, LinkedHashMap<Long, Entry> pending) throws IOException {
+        long position = 0;
+        long nextSequence = 0;
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            channel.read(header, position);
+            int length = header.getInt(0);
+            if (length <= 0 || position + HEADER_SIZE + length > size) {
+                break;
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            channel.read(payload, position + HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != header.getInt(Integer.BYTES)) {
+                break;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.array()));
+            byte kind = in.readByte();
+            long sequence = in.readLong();
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            if (kind == DONE) {
+                pending.remove(sequence);
+            } else {
+                String table = readText(in);
+                int count = in.readInt();
+                ArrayList<String> columns = new ArrayList<>(count);
+                ArrayList<Object> values = new ArrayList<>(count);
+                for (int i = 0; i < count; ++i) {
+                    columns.add(readText(in));
+                    values.add(readValue(in));
+                }
+                pending.put(sequence, new Entry(sequence, table, List.copyOf(columns), values));
+            }
+
+            position += HEADER_SIZE + length;
+        }
+
+        return new Scan(position, nextSequence);
+    }
+
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        return new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL_VALUE);
+        } else if (value instanceof Boolean bool) {
+            out.writeByte(BOOLEAN_VALUE);
+            out.writeBoolean(bool);
+        } else if (value instanceof Integer integer) {
+            out.writeByte(INT_VALUE);
+            out.writeInt(integer);
+        } else if (value instanceof Long longValue) {
+            out.writeByte(LONG_VALUE);
+            out.writeLong(longValue);
+        } else if (value instanceof Double doubleValue) {
+            out.writeByte(DOUBLE_VALUE);
+            out.writeDouble(doubleValue);
+        } else {
+            out.writeByte(TEXT_VALUE);
+            writeText(out, value.toString());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+            case NULL_VALUE -> null;
+            case BOOLEAN_VALUE -> in.readBoolean();
+            case INT_VALUE -> in.readInt();
+            case LONG_VALUE -> in.readLong();
+            case DOUBLE_VALUE -> in.readDouble();
+            case TEXT_VALUE -> readText(in);
+            default -> throw new IOException("Неизвестный тип значения в журнале: " + type);
+        };
+    }
+}
@@ -48,6 +48,7 @@ public class Arithmetic extends Model {
         IO.println("8. Модуль числа с учетом типа.");
         IO.println("9. Возведение числа в степень с учетом типа.");
         IO.println("10. Сохранить результаты из MySQL в Excel.");
+        IO.println("11. Загрузить данные из Excel (.xlsx) в таблицу MySQL.");
     }
 
     @Override
@@ -65,6 +66,7 @@ public class Arithmetic extends Model {
             case "8" -> performModule(connection);
             case "9" -> performExponentiation(connection);
             case "10" -> saveToExcel(connection);
+            case "11" -> loadFromExcel(connection);
             default -> IO.println("Неверный номер команды. Попробуйте снова.");
         }
     }
@@ -0,0 +1,270 @@
+package ex2.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+final class CommonSubstrings {
+    record Match(int length, int firstStart, int secondStart) { }
+
+    private CommonSubstrings() { }
+
+    // Автомат строится по первой строке, вторая проходит через него потоком: в каждой
+    // позиции известен длиннейший общий суффикс. Максимальные (нерасширяемые вправо)
+    // совпадения попадают в список лучших, одинаковые подстроки не повторяются.
+    static List<Match> longest(CharSequence first, CharSequence second, int limit) {
+        SuffixAutomaton automaton = new SuffixAutomaton(first);
+        TopMatches top = new TopMatches(limit);
+
+        int state = 0;
+        int length = 0;
+        int previousState = 0;
+        int previousLength = 0;
+
+        for (int i = 0; i < second.length(); ++i) {
+            char symbol = second.charAt(i);
+
+            while (state != 0 && automaton.transition(state, symbol) < 0) {
+                state = automaton.link(state);
+                length = automaton.length(state);
+            }
+
+            int next = automaton.transition(state, symbol);
+            if (next >= 0) {
+                state = next;
+                ++length;
+            } else {
+                state = 0;
+                length = 0;
+            }
+
+            if (previousLength > 0 && length != previousLength + 1) {
+                top.offer(automaton, previousState, previousLength, i - 1);
+            }
+            previousState = state;
+            previousLength = length;
+        }
+
+        if (previousLength > 0) {
+            top.offer(automaton, previousState, previousLength, second.length() - 1);
+        }
+
+        return top.toList();
+    }
+
+    // Переходы лежат в плоских массивах: ребра связаны списками для копирования при
+    // клонировании состояния, а поиск перехода идет по открытой адресации с ключом
+    // (состояние, символ) — одно обращение к памяти вместо обхода списка ребер.
+    private static final class SuffixAutomaton {
+        private static final long EMPTY_KEY = -1L;
+
+        private final int[] lengths;
+        private final int[] links;
+        private final int[] firstEnds;
+        private final int[] heads;
+        private int[] nextEdges = new int[16];
+        private char[] labels = new char[16];
+        private int[] targets = new int[16];
+        private long[] edgeKeys = new long[32];
+        private int[] edgeSlots = new int[32];
+        private int states = 0;
+        private int edges = 0;
+
+        SuffixAutomaton(CharSequence text) {
+            int maxStates = Math.max(2, 2 * text.length());
+
+            lengths = new int[maxStates];
+            links = new int[maxStates];
+            firstEnds = new int[maxStates];
+            heads = new int[maxStates];
+            Arrays.fill(heads, -1);
+            Arrays.fill(edgeKeys, EMPTY_KEY);
+
+            int last = newState(0, -1, -1);
+            for (int i = 0; i < text.length(); ++i) {
+                last = extend(last, text.charAt(i), i);
+            }
+        }
+
+        int length(int state) {
+            return lengths[state];
+        }
+
+        int link(int state) {
+            return links[state];
+        }
+
+        int firstEnd(int state) {
+            return firstEnds[state];
+        }
+
+        int transition(int state, char symbol) {
+            int edge = findEdge(state, symbol);
+            return edge < 0 ? -1 : targets[edge];
+        }
+
+        private int extend(int last, char symbol, int position) {
+            int current = newState(lengths[last] + 1, -1, position);
+            int state = last;
+
+            while (state != -1 && findEdge(state, symbol) < 0) {
+                addEdge(state, symbol, current);
+                state = links[state];
+            }
+
+            if (state == -1) {
+                links[current] = 0;
+                return current;
+            }
+
+            int target = targets[findEdge(state, symbol)];
+            if (lengths[state] + 1 == lengths[target]) {
+                links[current] = target;
+                return current;
+            }
+
+            int clone = newState(lengths[state] + 1, links[target], firstEnds[target]);
+            for (int edge = heads[target]; edge >= 0; edge = nextEdges[edge]) {
+                addEdge(clone, labels[edge], targets[edge]);
+            }
+
+            while (state != -1) {
+                int edge = findEdge(state, symbol);
+                if (edge < 0 || targets[edge] != target) {
+                    break;
+                }
+                targets[edge] = clone;
+                state = links[state];
+            }
+
+            links[target] = clone;
+            links[current] = clone;
+            return current;
+        }
+
+        private int newState(int length, int link, int firstEnd) {
+            lengths[states] = length;
+            links[states] = link;
+            firstEnds[states] = firstEnd;
+            return states++;
+        }
+
+        private void addEdge(int state, char symbol, int target) {
+            if (edges == targets.length) {
+                nextEdges = Arrays.copyOf(nextEdges, edges * 2);
+                labels = Arrays.copyOf(labels, edges * 2);
+                targets = Arrays.copyOf(targets, edges * 2);
+            }
+            if (edges * 2 >= edgeKeys.length) {
+                rehash(edgeKeys.length * 2);
+            }
+
+            labels[edges] = symbol;
+            targets[edges] = target;
+            nextEdges[edges] = heads[state];
+            heads[state] = edges;
+            insertSlot(key(state, symbol), edges);
+            ++edges;
+        }
+
+        private int findEdge(int state, char symbol) {
+            long key = key(state, symbol);
+            int mask = edgeKeys.length - 1;
+
+            for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+                if (edgeKeys[slot] == key) {
+                    return edgeSlots[slot];
+                }
+                if (edgeKeys[slot] == EMPTY_KEY) {
+                    return -1;
+                }
+            }
+        }
+
+        private void insertSlot(long key, int edge) {
+            int mask = edgeKeys.length - 1;
+            int slot = slot(key, mask);
+            while (edgeKeys[slot] != EMPTY_KEY) {
+                slot = (slot + 1) & mask;
+            }
+            edgeKeys[slot] = key;
+            edgeSlots[slot] = edge;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = edgeKeys;
+            int[] oldSlots = edgeSlots;
+
+            edgeKeys = new long[capacity];
+            edgeSlots = new int[capacity];
+            Arrays.fill(edgeKeys, EMPTY_KEY);
+
+            for (int i = 0; i < oldKeys.length; ++i) {
+                if (oldKeys[i] != EMPTY_KEY) {
+                    insertSlot(oldKeys[i], oldSlots[i]);
+                }
+            }
+        }
+
+        private static long key(int state, char symbol) {
+            return ((long) state << Character.SIZE) | symbol;
+        }
+
+        private static int slot(long key, int mask) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+
+    private static final class TopMatches {
+        private final int[] states;
+        private final int[] lengths;
+        private final int[] secondEnds;
+        private final int[] firstEnds;
+        private int size = 0;
+
+        TopMatches(int limit) {
+            states = new int[limit];
+            lengths = new int[limit];
+            secondEnds = new int[limit];
+            firstEnds = new int[limit];
+        }
+
+        void offer(SuffixAutomaton automaton, int state, int length, int secondEnd) {
+            if (size == lengths.length && lengths[size - 1] >= length) {
+                return;
+            }
+            for (int i = 0; i < size; ++i) {
+                if (states[i] == state && lengths[i] == length) {
+                    return;
+                }
+            }
+
+            int position = Math.min(size, lengths.length - 1);
+            while (position > 0 && lengths[position - 1] < length) {
+                states[position] = states[position - 1];
+                lengths[position] = lengths[position - 1];
+                secondEnds[position] = secondEnds[position - 1];
+                firstEnds[position] = firstEnds[position - 1];
+                --position;
+            }
+
+            states[position] = state;
+            lengths[position] = length;
+            secondEnds[position] = secondEnd;
+            firstEnds[position] = automaton.firstEnd(state);
+            size = Math.min(size + 1, lengths.length);
+        }
+
+        List<Match> toList() {
+            ArrayList<Match> matches = new ArrayList<>(size);
+            for (int i = 0; i < size; ++i) {
+                matches.add(new Match(
+                    lengths[i],
+                    firstEnds[i] - lengths[i] + 1,
+                    secondEnds[i] - lengths[i] + 1
+                ));
+            }
+            return matches;
+        }
+    }
+}
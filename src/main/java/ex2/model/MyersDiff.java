@@ -0,0 +1,410 @@
+package ex2.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+final class MyersDiff {
+    private static final int MIN_COST_LIMIT = 256;
+    private static final long WORK_PER_TOKEN = 64;
+    private static final long MIN_WORK_BUDGET = 4_000_000;
+
+    enum Granularity {
+        CHARACTERS("по символам"),
+        WORDS("по словам");
+
+        private final String description;
+
+        Granularity(String description) {
+            this.description = description;
+        }
+
+        String describe() {
+            return description;
+        }
+    }
+
+    enum Operation {
+        EQUAL('='),
+        DELETE('-'),
+        INSERT('+');
+
+        private final char symbol;
+
+        Operation(char symbol) {
+            this.symbol = symbol;
+        }
+
+        char symbol() {
+            return symbol;
+        }
+    }
+
+    // Границы правки задаются в символах исходных строк независимо от гранулярности.
+    record Edit(Operation operation, int firstStart, int firstEnd, int secondStart, int secondEnd) {
+        int length() {
+            return operation == Operation.INSERT ? secondEnd - secondStart : firstEnd - firstStart;
+        }
+    }
+
+    private final Tokens first;
+    private final Tokens second;
+    private final int[] forward;
+    private final int[] backward;
+    private final int diagonalOffset;
+    private final int costLimit;
+    private final BitSet deleted;
+    private final BitSet inserted;
+    private final long workBudget;
+    private long work = 0;
+    private int splitDiagonal = 0;
+
+    private MyersDiff(Tokens first, Tokens second) {
+        this.first = first;
+        this.second = second;
+
+        int diagonals = first.size() + second.size() + 3;
+        this.forward = new int[diagonals];
+        this.backward = new int[diagonals];
+        this.diagonalOffset = second.size() + 1;
+        this.deleted = new BitSet(first.size());
+        this.inserted = new BitSet(second.size());
+
+        // Как в GNU diff: после ~sqrt(N) шагов поиска средней змейки выбирается лучшая
+        // достигнутая диагональ, иначе на полностью разных строках время станет O(N^2).
+        int limit = 1;
+        for (int rest = diagonals; rest != 0; rest >>= 2) {
+            limit <<= 1;
+        }
+        this.costLimit = Math.max(MIN_COST_LIMIT, limit);
+        // Общий бюджет просмотренных диагоналей держит время линейным по длине входа:
+        // когда он исчерпан, оставшиеся отрезки считаются замененными целиком.
+        this.workBudget = Math.max(MIN_WORK_BUDGET, WORK_PER_TOKEN * (first.size() + second.size()));
+    }
+
+    static List<Edit> diff(CharSequence firstText, CharSequence secondText, Granularity granularity) {
+        Tokens first;
+        Tokens second;
+
+        if (granularity == Granularity.WORDS) {
+            HashMap<String, Integer> dictionary = new HashMap<>();
+            first = Tokens.words(firstText, dictionary);
+            second = Tokens.words(secondText, dictionary);
+        } else {
+            first = Tokens.characters(firstText);
+            second = Tokens.characters(secondText);
+        }
+
+        MyersDiff diff = new MyersDiff(first, second);
+        diff.compare();
+        return diff.collectEdits();
+    }
+
+    static String toScript(List<Edit> edits) {
+        StringBuilder script = new StringBuilder();
+        for (Edit edit : edits) {
+            if (!script.isEmpty()) {
+                script.append(' ');
+            }
+            script.append(edit.operation().symbol()).append(edit.length());
+        }
+        return script.toString();
+    }
+
+    private void compare() {
+        ArrayDeque<int[]> pending = new ArrayDeque<>();
+        pending.push(new int[]{0, first.size(), 0, second.size()});
+
+        while (!pending.isEmpty()) {
+            int[] range = pending.pop();
+            int firstStart = range[0];
+            int firstEnd = range[1];
+            int secondStart = range[2];
+            int secondEnd = range[3];
+
+            while (firstStart < firstEnd && secondStart < secondEnd
+                && first.id(firstStart) == second.id(secondStart)
+            ) {
+                ++firstStart;
+                ++secondStart;
+            }
+            while (firstStart < firstEnd && secondStart < secondEnd
+                && first.id(firstEnd - 1) == second.id(secondEnd - 1)
+            ) {
+                --firstEnd;
+                --secondEnd;
+            }
+
+            if (firstStart == firstEnd) {
+                inserted.set(secondStart, secondEnd);
+            } else if (secondStart == secondEnd) {
+                deleted.set(firstStart, firstEnd);
+            } else if (work > workBudget) {
+                deleted.set(firstStart, firstEnd);
+                inserted.set(secondStart, secondEnd);
+            } else {
+                int splitFirst = middleSnake(firstStart, firstEnd, secondStart, secondEnd);
+                int splitSecond = splitFirst - splitDiagonal;
+                pending.push(new int[]{splitFirst, firstEnd, splitSecond, secondEnd});
+                pending.push(new int[]{firstStart, splitFirst, secondStart, splitSecond});
+            }
+        }
+    }
+
+    // Поиск средней змейки одновременно с двух концов: памяти нужно O(N + M) на весь diff,
+    // поскольку массивы диагоналей переиспользуются всеми уровнями разбиения.
+    private int middleSnake(int firstStart, int firstEnd, int secondStart, int secondEnd) {
+        int minDiagonal = firstStart - secondEnd;
+        int maxDiagonal = firstEnd - secondStart;
+        int forwardMid = firstStart - secondStart;
+        int backwardMid = firstEnd - secondEnd;
+        int forwardMin = forwardMid;
+        int forwardMax = forwardMid;
+        int backwardMin = backwardMid;
+        int backwardMax = backwardMid;
+        boolean odd = ((forwardMid - backwardMid) & 1) != 0;
+
+        forward[diagonalOffset + forwardMid] = firstStart;
+        backward[diagonalOffset + backwardMid] = firstEnd;
+
+        for (int cost = 1; ; ++cost) {
+            if (forwardMin > minDiagonal) {
+                forward[diagonalOffset + --forwardMin - 1] = -1;
+            } else {
+                ++forwardMin;
+            }
+            if (forwardMax < maxDiagonal) {
+                forward[diagonalOffset + ++forwardMax + 1] = -1;
+            } else {
+                --forwardMax;
+            }
+
+            work += forwardMax - forwardMin + backwardMax - backwardMin + 2;
+
+            for (int d = forwardMax; d >= forwardMin; d -= 2) {
+                int low = forward[diagonalOffset + d - 1];
+                int high = forward[diagonalOffset + d + 1];
+                int x = low >= high ? low + 1 : high;
+                int y = x - d;
+
+                while (x < firstEnd && y < secondEnd && first.id(x) == second.id(y)) {
+                    ++x;
+                    ++y;
+                }
+                forward[diagonalOffset + d] = x;
+
+                if (odd && backwardMin <= d && d <= backwardMax
+                    && backward[diagonalOffset + d] <= x
+                ) {
+                    splitDiagonal = d;
+                    return x;
+                }
+            }
+
+            if (backwardMin > minDiagonal) {
+                backward[diagonalOffset + --backwardMin - 1] = Integer.MAX_VALUE;
+            } else {
+                ++backwardMin;
+            }
+            if (backwardMax < maxDiagonal) {
+                backward[diagonalOffset + ++backwardMax + 1] = Integer.MAX_VALUE;
+            } else {
+                --backwardMax;
+            }
+
+            for (int d = backwardMax; d >= backwardMin; d -= 2) {
+                int low = backward[diagonalOffset + d - 1];
+                int high = backward[diagonalOffset + d + 1];
+                int x = low < high ? low : high - 1;
+                int y = x - d;
+
+                while (firstStart < x && secondStart < y && first.id(x - 1) == second.id(y - 1)) {
+                    --x;
+                    --y;
+                }
+                backward[diagonalOffset + d] = x;
+
+                if (!odd && forwardMin <= d && d <= forwardMax
+                    && x <= forward[diagonalOffset + d]
+                ) {
+                    splitDiagonal = d;
+                    return x;
+                }
+            }
+
+            if (cost >= costLimit || work > workBudget) {
+                return bestReachedSplit(
+                    firstStart, firstEnd, secondStart, secondEnd,
+                    forwardMin, forwardMax, backwardMin, backwardMax
+                );
+            }
+        }
+    }
+
+    private int bestReachedSplit(
+        int firstStart,
+        int firstEnd,
+        int secondStart,
+        int secondEnd,
+        int forwardMin,
+        int forwardMax,
+        int backwardMin,
+        int backwardMax
+    ) {
+        int forwardBest = -1;
+        int forwardBestX = firstStart;
+        for (int d = forwardMax; d >= forwardMin; d -= 2) {
+            int x = Math.min(forward[diagonalOffset + d], firstEnd);
+            int y = x - d;
+            if (secondEnd < y) {
+                x = secondEnd + d;
+                y = secondEnd;
+            }
+            if (forwardBest < x + y) {
+                forwardBest = x + y;
+                forwardBestX = x;
+            }
+        }
+
+        int backwardBest = Integer.MAX_VALUE;
+        int backwardBestX = firstEnd;
+        for (int d = backwardMax; d >= backwardMin; d -= 2) {
+            int x = Math.max(firstStart, backward[diagonalOffset + d]);
+            int y = x - d;
+            if (y < secondStart) {
+                x = secondStart + d;
+                y = secondStart;
+            }
+            if (x + y < backwardBest) {
+                backwardBest = x + y;
+                backwardBestX = x;
+            }
+        }
+
+        if ((firstEnd + secondEnd) - backwardBest < forwardBest - (firstStart + secondStart)) {
+            splitDiagonal = forwardBestX - (forwardBest - forwardBestX);
+            return forwardBestX;
+        }
+        splitDiagonal = backwardBestX - (backwardBest - backwardBestX);
+        return backwardBestX;
+    }
+
+    private List<Edit> collectEdits() {
+        ArrayList<Edit> edits = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+
+        while (i < first.size() || j < second.size()) {
+            if (i < first.size() && deleted.get(i)) {
+                int end = nextClear(deleted, i, first.size());
+                edits.add(new Edit(
+                    Operation.DELETE,
+                    first.start(i),
+                    first.start(end),
+                    second.start(j),
+                    second.start(j)
+                ));
+                i = end;
+            } else if (j < second.size() && inserted.get(j)) {
+                int end = nextClear(inserted, j, second.size());
+                edits.add(new Edit(
+                    Operation.INSERT,
+                    first.start(i),
+                    first.start(i),
+                    second.start(j),
+                    second.start(end)
+                ));
+                j = end;
+            } else {
+                int length = Math.min(
+                    nextSet(deleted, i, first.size()) - i,
+                    nextSet(inserted, j, second.size()) - j
+                );
+                edits.add(new Edit(
+                    Operation.EQUAL,
+                    first.start(i),
+                    first.start(i + length),
+                    second.start(j),
+                    second.start(j + length)
+                ));
+                i += length;
+                j += length;
+            }
+        }
+
+        return edits;
+    }
+
+    private static int nextClear(BitSet bits, int from, int limit) {
+        return Math.min(bits.nextClearBit(from), limit);
+    }
+
+    private static int nextSet(BitSet bits, int from, int limit) {
+        int next = bits.nextSetBit(from);
+        return next < 0 ? limit : Math.min(next, limit);
+    }
+
+    // Последовательность сравниваемых элементов: символы строки или слова вместе с
+    // разделяющими их пробелами. Слова заменяются целочисленными идентификаторами.
+    private static final class Tokens {
+        private final int[] ids;
+        private final int[] starts;
+
+        private Tokens(int[] ids, int[] starts) {
+            this.ids = ids;
+            this.starts = starts;
+        }
+
+        static Tokens characters(CharSequence text) {
+            int[] ids = new int[text.length()];
+            for (int i = 0; i < ids.length; ++i) {
+                ids[i] = text.charAt(i);
+            }
+            return new Tokens(ids, null);
+        }
+
+        static Tokens words(CharSequence text, HashMap<String, Integer> dictionary) {
+            int count = 0;
+            for (int i = 0; i < text.length(); ++i) {
+                if (i == 0 || isSpace(text.charAt(i)) != isSpace(text.charAt(i - 1))) {
+                    ++count;
+                }
+            }
+
+            int[] ids = new int[count];
+            int[] starts = new int[count + 1];
+            int index = 0;
+            for (int i = 0; i < text.length(); ++i) {
+                if (i == 0 || isSpace(text.charAt(i)) != isSpace(text.charAt(i - 1))) {
+                    starts[index++] = i;
+                }
+            }
+            starts[count] = text.length();
+
+            for (int i = 0; i < count; ++i) {
+                String word = text.subSequence(starts[i], starts[i + 1]).toString();
+                ids[i] = dictionary.computeIfAbsent(word, key -> dictionary.size());
+            }
+
+            return new Tokens(ids, starts);
+        }
+
+        private static boolean isSpace(char symbol) {
+            return Character.isWhitespace(symbol);
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        int id(int index) {
+            return ids[index];
+        }
+
+        int start(int index) {
+            return starts == null ? index : starts[index];
+        }
+    }
+}
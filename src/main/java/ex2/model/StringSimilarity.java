@@ -0,0 +1,254 @@
+package ex2.model;
+
+import common.CharSequences;
+
+import java.util.Arrays;
+
+final class StringSimilarity {
+    private static final int WORD_SIZE = Long.SIZE;
+    private static final int CHUNK_SIZE = 4096;
+    private static final int DIRECT_ALPHABET = 256;
+
+    record Metrics(int distance, double similarity, int firstMismatch, int order) { }
+
+    // Буферы переиспользуются между вызовами: сравнение идет кусками фиксированного размера.
+    private final char[] firstChunk = new char[CHUNK_SIZE];
+    private final char[] secondChunk = new char[CHUNK_SIZE];
+
+    Metrics compute(CharSequence first, CharSequence second) {
+        int mismatch = firstMismatch(first, second);
+        int order = lexicographicOrder(first, second, mismatch);
+        int distance = mismatch == -1 ? 0 : levenshtein(first, second, mismatch);
+        int maxLength = Math.max(first.length(), second.length());
+        double similarity = maxLength == 0 ? 1.0d : 1.0d - (double) distance / maxLength;
+
+        return new Metrics(distance, similarity, mismatch, order);
+    }
+
+    int firstMismatch(CharSequence first, CharSequence second) {
+        int commonLength = Math.min(first.length(), second.length());
+
+        for (int offset = 0; offset < commonLength; offset += CHUNK_SIZE) {
+            int length = Math.min(CHUNK_SIZE, commonLength - offset);
+            copyChars(first, offset, length, firstChunk);
+            copyChars(second, offset, length, secondChunk);
+
+            int index = Arrays.mismatch(firstChunk, 0, length, secondChunk, 0, length);
+            if (index >= 0) {
+                return offset + index;
+            }
+        }
+
+        return first.length() == second.length() ? -1 : commonLength;
+    }
+
+    private static int lexicographicOrder(CharSequence first, CharSequence second, int mismatch) {
+        if (mismatch == -1) {
+            return 0;
+        }
+        if (mismatch == first.length() || mismatch == second.length()) {
+            return Integer.signum(first.length() - second.length());
+        }
+        return Integer.signum(first.charAt(mismatch) - second.charAt(mismatch));
+    }
+
+    private static void copyChars(CharSequence source, int offset, int length, char[] target) {
+        CharSequences.getChars(source, offset, offset + length, target, 0);
+    }
+
+    private static int levenshtein(CharSequence first, CharSequence second, int prefix) {
+        int firstEnd = first.length();
+        int secondEnd = second.length();
+
+        // Общий суффикс не влияет на расстояние, отбрасываем его так же, как и общий префикс.
+        while (firstEnd > prefix && secondEnd > prefix
+            && first.charAt(firstEnd - 1) == second.charAt(secondEnd - 1)
+        ) {
+            --firstEnd;
+            --secondEnd;
+        }
+
+        int firstLength = firstEnd - prefix;
+        int secondLength = secondEnd - prefix;
+
+        if (firstLength == 0 || secondLength == 0) {
+            return Math.max(firstLength, secondLength);
+        }
+
+        // Шаблоном выбирается более короткая строка: меньше машинных слов на столбец.
+        if (firstLength <= secondLength) {
+            return bitParallel(first, prefix, firstLength, second, prefix, secondLength);
+        }
+        return bitParallel(second, prefix, secondLength, first, prefix, firstLength);
+    }
+
+    // Алгоритм Майерса в блочной формулировке Хюрё: столбец матрицы хранится как векторы
+    // положительных и отрицательных вертикальных приращений по 64 строки в машинном слове.
+    private static int bitParallel(
+        CharSequence pattern,
+        int patternOffset,
+        int patternLength,
+        CharSequence text,
+        int textOffset,
+        int textLength
+    ) {
+        int words = (patternLength + WORD_SIZE - 1) / WORD_SIZE;
+        PatternMasks masks = new PatternMasks(pattern, patternOffset, patternLength, words);
+
+        if (words == 1) {
+            return singleWord(masks, patternLength, text, textOffset, textLength);
+        }
+        return multiWord(masks, patternLength, words, text, textOffset, textLength);
+    }
+
+    private static int singleWord(
+        PatternMasks masks,
+        int patternLength,
+        CharSequence text,
+        int textOffset,
+        int textLength
+    ) {
+        long last = 1L << (patternLength - 1);
+        long positive = ~0L;
+        long negative = 0L;
+        int score = patternLength;
+
+        for (int i = 0; i < textLength; ++i) {
+            long match = masks.word(text.charAt(textOffset + i), 0);
+            long x = match | negative;
+            long diagonal = (((x & positive) + positive) ^ positive) | x;
+            long horizontalPositive = negative | ~(diagonal | positive);
+            long horizontalNegative = positive & diagonal;
+
+            if ((horizontalPositive & last) != 0) {
+                ++score;
+            } else if ((horizontalNegative & last) != 0) {
+                --score;
+            }
+
+            horizontalPositive = (horizontalPositive << 1) | 1L;
+            horizontalNegative <<= 1;
+            positive = horizontalNegative | ~(diagonal | horizontalPositive);
+            negative = horizontalPositive & diagonal;
+        }
+
+        return score;
+    }
+
+    private static int multiWord(
+        PatternMasks masks,
+        int patternLength,
+        int words,
+        CharSequence text,
+        int textOffset,
+        int textLength
+    ) {
+        long[] positive = new long[words];
+        long[] negative = new long[words];
+        Arrays.fill(positive, ~0L);
+
+        long last = 1L << ((patternLength - 1) % WORD_SIZE);
+        int score = patternLength;
+
+        for (int i = 0; i < textLength; ++i) {
+            char symbol = text.charAt(textOffset + i);
+            // Верхняя граница матрицы — строка 0..n, приращение по горизонтали всегда +1.
+            long positiveCarry = 1L;
+            long negativeCarry = 0L;
+
+            for (int word = 0; word < words; ++word) {
+                long match = masks.word(symbol, word);
+                long vp = positive[word];
+                long vn = negative[word];
+
+                long x = match | negativeCarry;
+                long diagonal = (((x & vp) + vp) ^ vp) | x | vn;
+                long hp = vn | ~(diagonal | vp);
+                long hn = diagonal & vp;
+
+                if (word == words - 1) {
+                    if ((hp & last) != 0) {
+                        ++score;
+                    } else if ((hn & last) != 0) {
+                        --score;
+                    }
+                }
+
+                long nextPositiveCarry = hp >>> (WORD_SIZE - 1);
+                long nextNegativeCarry = hn >>> (WORD_SIZE - 1);
+                hp = (hp << 1) | positiveCarry;
+                hn = (hn << 1) | negativeCarry;
+                positiveCarry = nextPositiveCarry;
+                negativeCarry = nextNegativeCarry;
+
+                positive[word] = hn | ~(diagonal | hp);
+                negative[word] = hp & diagonal;
+            }
+        }
+
+        return score;
+    }
+
+    // Битовые маски вхождений символов шаблона хранятся только для встретившихся символов:
+    // Latin-1 индексируется напрямую, остальное — через открытую адресацию.
+    private static final class PatternMasks {
+        private final int words;
+        private final int[] directOrdinals = new int[DIRECT_ALPHABET];
+        private final int[] keys;
+        private final int[] ordinals;
+        private final int mask;
+        private final long[] bits;
+        private int distinct = 0;
+
+        PatternMasks(CharSequence pattern, int offset, int length, int words) {
+            this.words = words;
+
+            int capacity = Integer.highestOneBit(Math.min(length, Character.MAX_VALUE + 1) * 2 - 1) << 1;
+            this.keys = new int[capacity];
+            this.ordinals = new int[capacity];
+            this.mask = capacity - 1;
+            Arrays.fill(directOrdinals, -1);
+            Arrays.fill(keys, -1);
+
+            for (int i = 0; i < length; ++i) {
+                ordinal(pattern.charAt(offset + i), true);
+            }
+
+            this.bits = new long[distinct * words];
+            for (int i = 0; i < length; ++i) {
+                int base = ordinal(pattern.charAt(offset + i), false) * words;
+                bits[base + i / WORD_SIZE] |= 1L << (i % WORD_SIZE);
+            }
+        }
+
+        long word(char symbol, int word) {
+            int ordinal = ordinal(symbol, false);
+            return ordinal < 0 ? 0L : bits[ordinal * words + word];
+        }
+
+        private int ordinal(char symbol, boolean insert) {
+            if (symbol < DIRECT_ALPHABET) {
+                if (insert && directOrdinals[symbol] < 0) {
+                    directOrdinals[symbol] = distinct++;
+                }
+                return directOrdinals[symbol];
+            }
+
+            int slot = (symbol * 0x9E37) & mask;
+            while (true) {
+                if (keys[slot] == symbol) {
+                    return ordinals[slot];
+                }
+                if (keys[slot] < 0) {
+                    if (!insert) {
+                        return -1;
+                    }
+                    keys[slot] = symbol;
+                    ordinals[slot] = distinct++;
+                    return ordinals[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+    }
+}
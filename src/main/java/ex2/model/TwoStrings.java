@@ -1,15 +1,27 @@
 package ex2.model;
 
+import common.Description;
+import common.MappedText;
 import common.Model;
+import common.Rope;
+import common.TextStatistics;
 import static common.Model.IO;
 
 import java.sql.Connection;
-import java.util.Objects;
+import java.util.List;
 
 public class TwoStrings extends Model {
-    private String firstString = null;
-    private String secondString = null;
+    private Rope firstString = null;
+    private Rope secondString = null;
+    private boolean loadedFromFiles = false;
     private static final int MIN_STRING_LENGTH = 50;
+    private static final int DIFF_PREVIEW_LENGTH = 80;
+    private static final int DIFF_PREVIEW_EDITS = 20;
+    private static final int MAX_STORED_SCRIPT_LENGTH = 16_000;
+    private static final int MAX_COMMON_SUBSTRINGS = 10;
+    private static final int MAX_STORED_TEXT_LENGTH = 16_000;
+    private static final int STATISTICS_TOP = 10;
+    private final StringSimilarity similarity = new StringSimilarity();
 
     @Override
     public String getDescribeMessage() {
@@ -27,6 +39,12 @@ public class TwoStrings extends Model {
         IO.println("6. Объединить две ранее введенные строки в одну, результат сохранить в MySQL.");
         IO.println("7. Сравнить две ранее введенные строки, результат сравнения вывести на экран и сохранить в MySQL.");
         IO.println("8. Экспортировать данные из MySQL в Excel и вывести на экран.");
+        IO.println("9. Вычислить расстояние Левенштейна и меру сходства строк, результат сохранить в MySQL.");
+        IO.println("10. Построить различия (diff) между строками, сценарий правок сохранить в MySQL.");
+        IO.println("11. Найти наибольшие общие подстроки двух строк, результат сохранить в MySQL.");
+        IO.println("12. Загрузить две строки из текстовых файлов (UTF-8), сведения о файлах сохранить в MySQL.");
+        IO.println("13. Подсчитать частоты символов, биграмм и триграмм строк, сводку сохранить в MySQL.");
+        IO.println("14. Загрузить данные из Excel (.xlsx) в таблицу MySQL.");
     }
 
     @Override
@@ -42,6 +60,12 @@ public class TwoStrings extends Model {
             case "6" -> concatenateStrings(connection);
             case "7" -> compareStoredStrings(connection);
             case "8" -> saveToExcel(connection);
+            case "9" -> measureSimilarity(connection);
+            case "10" -> diffStoredStrings(connection);
+            case "11" -> findCommonSubstrings(connection);
+            case "12" -> loadTwoStringsFromFiles(connection);
+            case "13" -> computeStatistics(connection);
+            case "14" -> loadFromExcel(connection);
             default -> IO.println("Неверный номер команды. Попробуйте снова.");
         }
     }
@@ -49,15 +73,42 @@ public class TwoStrings extends Model {
     private void inputTwoStrings(Connection connection) throws RuntimeException {
         IO.println("\nВведите две строки (каждая не менее " + MIN_STRING_LENGTH + " символов):");
         
-        firstString = readStringWithMinLength("первую", MIN_STRING_LENGTH);
-        secondString = readStringWithMinLength("вторую", MIN_STRING_LENGTH);
+        firstString = Rope.of(readStringWithMinLength("первую", MIN_STRING_LENGTH));
+        secondString = Rope.of(readStringWithMinLength("вторую", MIN_STRING_LENGTH));
 
         IO.println("\nСтроки успешно введены:");
-        IO.println("Первая строка: " + firstString);
-        IO.println("Вторая строка: " + secondString);
+        IO.println(Rope.of("Первая строка: ").concat(firstString));
+        IO.println(Rope.of("Вторая строка: ").concat(secondString));
 
-        finishQuery(connection, firstString, "Первая строка: " + firstString);
-        finishQuery(connection, secondString, "Вторая строка: " + secondString);
+        finishQuery(connection, firstString, Description.of("Первая строка: ", firstString));
+        finishQuery(connection, secondString, Description.of("Вторая строка: ", secondString));
+        loadedFromFiles = false;
+    }
+
+    // Файлы отображаются в память и не копируются в кучу; в MySQL уходят сведения о файлах,
+    // а не их содержимое.
+    private void loadTwoStringsFromFiles(Connection connection) throws RuntimeException {
+        IO.println("\nУкажите пути к двум текстовым файлам (пустой ввод — отмена):");
+
+        MappedText firstFile = readTextFile("Путь к первому файлу: ");
+        if (firstFile == null) {
+            return;
+        }
+        MappedText secondFile = readTextFile("Путь ко второму файлу: ");
+        if (secondFile == null) {
+            return;
+        }
+
+        firstString = Rope.of(firstFile);
+        secondString = Rope.of(secondFile);
+        loadedFromFiles = true;
+
+        IO.println("\nСтроки успешно загружены:");
+        IO.println("Первая строка: " + firstFile.describe());
+        IO.println("Вторая строка: " + secondFile.describe());
+
+        finishQuery(connection, firstFile.describe(), Description.of("Первая строка: ", firstFile.describe()));
+        finishQuery(connection, secondFile.describe(), Description.of("Вторая строка: ", secondFile.describe()));
     }
 
     private String readStringWithMinLength(String ordinal, int minLength) {
@@ -77,8 +128,8 @@ public class TwoStrings extends Model {
         }
 
         IO.println("\nДве введенных ранее строки:");
-        IO.println("Первая строка: " + firstString);
-        IO.println("Вторая строка: " + secondString);
+        IO.println(Rope.of("Первая строка: ").concat(firstString));
+        IO.println(Rope.of("Вторая строка: ").concat(secondString));
     }
 
     private void calculateStringLengths(Connection connection) throws RuntimeException {
@@ -93,8 +144,8 @@ public class TwoStrings extends Model {
         IO.println("Длина первой строки: " + firstLength);
         IO.println("Длина второй строки: " + secondLength);
 
-        finishQuery(connection, Integer.toString(firstLength), "Длина первой строки: " + firstLength);
-        finishQuery(connection, Integer.toString(secondLength), "Длина второй строки: " + secondLength);
+        finishQuery(connection, Integer.toString(firstLength), Description.of("Длина первой строки: ", firstLength));
+        finishQuery(connection, Integer.toString(secondLength), Description.of("Длина второй строки: ", secondLength));
     }
 
     private void concatenateStrings(Connection connection) throws RuntimeException {
@@ -102,12 +153,23 @@ public class TwoStrings extends Model {
             return;
         }
 
-        String concatenated = firstString + secondString;
+        // Объединение и описание делят листья исходных строк, символы не копируются.
+        Rope concatenated = firstString.concat(secondString);
 
         IO.println("\nРезультат объединения двух строк:");
-        IO.println("Объединенная строка: " + concatenated);
+        IO.println(Rope.of("Объединенная строка: ").concat(concatenated));
 
-        finishQuery(connection, concatenated, firstString + " + " + secondString + " = " + concatenated);
+        if (loadedFromFiles) {
+            CharSequence stored = limitStored(concatenated);
+            finishQuery(connection, stored, Description.of("Объединение файлов = ", stored));
+            return;
+        }
+
+        finishQuery(
+            connection,
+            concatenated,
+            Description.of(firstString, " + ", secondString, " = ", concatenated)
+        );
     }
 
     private void compareStoredStrings(Connection connection) throws RuntimeException {
@@ -115,7 +177,7 @@ public class TwoStrings extends Model {
             return;
         }
 
-        boolean areEqual = Objects.equals(firstString, secondString);
+        boolean areEqual = similarity.firstMismatch(firstString, secondString) == -1;
         String result = areEqual ? "строки равны" : "строки не равны";
         String comparisonMessage = "Результат сравнения: " + result;
 
@@ -125,9 +187,222 @@ public class TwoStrings extends Model {
         finishQuery(connection, result, comparisonMessage);
     }
 
+    private void measureSimilarity(Connection connection) throws RuntimeException {
+        if (!checkStringsAvailable()) {
+            return;
+        }
+
+        StringSimilarity.Metrics metrics = similarity.compute(firstString, secondString);
+        String similarityPercent = String.format("%.2f%%", metrics.similarity() * 100);
+        String order = switch (metrics.order()) {
+            case -1 -> "первая строка меньше второй";
+            case 1 -> "первая строка больше второй";
+            default -> "строки равны";
+        };
+        String mismatch = metrics.firstMismatch() == -1
+            ? "нет"
+            : Integer.toString(metrics.firstMismatch());
+        String result = "расстояние=" + metrics.distance()
+            + "; сходство=" + similarityPercent
+            + "; несовпадение=" + mismatch
+            + "; порядок=" + metrics.order();
+
+        IO.println("\nСходство двух строк:");
+        IO.println("Расстояние Левенштейна: " + metrics.distance());
+        IO.println("Мера сходства: " + similarityPercent);
+        IO.println("Индекс первого несовпадающего символа: " + mismatch);
+        IO.println("Лексикографический порядок: " + order);
+
+        finishQuery(connection, result, Description.of("Сходство строк: ", result, " (", order, ")"));
+    }
+
+    private void diffStoredStrings(Connection connection) throws RuntimeException {
+        if (!checkStringsAvailable()) {
+            return;
+        }
+
+        MyersDiff.Granularity granularity = selectGranularity();
+        List<MyersDiff.Edit> edits = MyersDiff.diff(firstString, secondString, granularity);
+
+        int deletedChars = 0;
+        int insertedChars = 0;
+        int changes = 0;
+        for (MyersDiff.Edit edit : edits) {
+            switch (edit.operation()) {
+                case DELETE -> deletedChars += edit.length();
+                case INSERT -> insertedChars += edit.length();
+                default -> { }
+            }
+            if (edit.operation() != MyersDiff.Operation.EQUAL) {
+                ++changes;
+            }
+        }
+
+        IO.println("\nРазличия между строками (" + granularity.describe() + "):");
+        IO.println("Правок: " + changes + ", удалено символов: " + deletedChars
+            + ", вставлено символов: " + insertedChars);
+
+        int shown = 0;
+        for (MyersDiff.Edit edit : edits) {
+            if (edit.operation() == MyersDiff.Operation.EQUAL) {
+                continue;
+            }
+            if (shown++ == DIFF_PREVIEW_EDITS) {
+                IO.println("... и еще " + (changes - DIFF_PREVIEW_EDITS) + " правок.");
+                break;
+            }
+            IO.println(describeEdit(edit));
+        }
+
+        String script = MyersDiff.toScript(edits);
+        if (script.length() > MAX_STORED_SCRIPT_LENGTH) {
+            script = script.substring(0, script.lastIndexOf(' ', MAX_STORED_SCRIPT_LENGTH)) + " ...";
+        }
+
+        finishQuery(
+            connection,
+            script,
+            Description.of(
+                "Diff строк (", granularity.describe(), "): правок ", changes,
+                ", -", deletedChars, " / +", insertedChars, " символов"
+            )
+        );
+    }
+
+    private MyersDiff.Granularity selectGranularity() {
+        MyersDiff.Granularity[] options = MyersDiff.Granularity.values();
+
+        while (true) {
+            IO.println("\nВыберите гранулярность сравнения:");
+            for (int i = 0; i < options.length; i++) {
+                IO.println((i + 1) + ". " + options[i].describe());
+            }
+
+            String answer = IO.readln("Гранулярность: ").trim();
+            try {
+                int index = Integer.parseInt(answer) - 1;
+                if (index >= 0 && index < options.length) {
+                    return options[index];
+                }
+                IO.println("Ошибка: номер вне допустимого диапазона.");
+            } catch (NumberFormatException e) {
+                IO.println("Ошибка: необходимо ввести целое число.");
+            }
+        }
+    }
+
+    private String describeEdit(MyersDiff.Edit edit) {
+        boolean inserted = edit.operation() == MyersDiff.Operation.INSERT;
+        Rope source = inserted ? secondString : firstString;
+        int start = inserted ? edit.secondStart() : edit.firstStart();
+        int end = Math.min(start + DIFF_PREVIEW_LENGTH, inserted ? edit.secondEnd() : edit.firstEnd());
+        String fragment = source.subSequence(start, end) + (end - start < edit.length() ? "..." : "");
+
+        return edit.operation().symbol() + " [" + edit.firstStart() + ":" + edit.secondStart() + "] '"
+            + fragment + "'";
+    }
+
+    private void findCommonSubstrings(Connection connection) throws RuntimeException {
+        if (!checkStringsAvailable()) {
+            return;
+        }
+
+        int limit = readCommonSubstringsLimit();
+        List<CommonSubstrings.Match> matches = CommonSubstrings.longest(firstString, secondString, limit);
+
+        if (matches.isEmpty()) {
+            IO.println("\nОбщих подстрок не найдено.");
+            finishQuery(connection, "не найдены", "Общие подстроки: не найдены");
+            return;
+        }
+
+        IO.println("\nНаибольшие общие подстроки:");
+        StringBuilder positions = new StringBuilder();
+        for (int i = 0; i < matches.size(); ++i) {
+            CommonSubstrings.Match match = matches.get(i);
+            Rope fragment = firstString.subSequence(match.firstStart(), match.firstStart() + match.length());
+
+            IO.println((i + 1) + ". '" + limitStored(fragment) + "' (длина " + match.length()
+                + ", первая строка: " + match.firstStart()
+                + ", вторая строка: " + match.secondStart() + ")");
+
+            if (!positions.isEmpty()) {
+                positions.append(", ");
+            }
+            positions.append(match.length())
+                .append('@')
+                .append(match.firstStart())
+                .append('/')
+                .append(match.secondStart());
+        }
+
+        // В таблицу сохраняется наибольшая подстрока и позиции всех найденных: "подстрока | длина@первая/вторая, ...".
+        CommonSubstrings.Match longest = matches.get(0);
+        CharSequence longestText = limitStored(
+            firstString.subSequence(longest.firstStart(), longest.firstStart() + longest.length())
+        );
+        finishQuery(
+            connection,
+            longestText + " | " + positions,
+            Description.of("Общие подстроки (длина@первая/вторая): ", positions)
+        );
+    }
+
+    private void computeStatistics(Connection connection) throws RuntimeException {
+        if (!checkStringsAvailable()) {
+            return;
+        }
+
+        showStatistics(connection, firstString, "первой", "Первая");
+        showStatistics(connection, secondString, "второй", "Вторая");
+    }
+
+    private void showStatistics(Connection connection, Rope str, String ordinal, String title)
+        throws RuntimeException
+    {
+        TextStatistics statistics = TextStatistics.of(str);
+
+        IO.println("\n" + title + " строка:");
+        IO.println("Символов: " + statistics.length()
+            + ", кодовых точек: " + statistics.codePoints()
+            + ", байт в UTF-8: " + statistics.utf8Bytes()
+            + ", различных символов: " + statistics.distinctChars());
+        IO.println("Частые символы: " + TextStatistics.format(statistics.topChars(STATISTICS_TOP)));
+        IO.println("Частые биграммы: " + TextStatistics.format(statistics.topBigrams(STATISTICS_TOP)));
+        IO.println("Частые триграммы: " + TextStatistics.format(statistics.topTrigrams(STATISTICS_TOP)));
+
+        String summary = statistics.summary(STATISTICS_TOP);
+        finishQuery(connection, summary, Description.of("Статистика ", ordinal, " строки: ", summary));
+    }
+
+    private int readCommonSubstringsLimit() {
+        while (true) {
+            String answer = IO.readln(
+                "\nСколько подстрок вывести (1-" + MAX_COMMON_SUBSTRINGS + "): "
+            ).trim();
+            try {
+                int limit = Integer.parseInt(answer);
+                if (limit >= 1 && limit <= MAX_COMMON_SUBSTRINGS) {
+                    return limit;
+                }
+                IO.println("Ошибка: значение вне допустимого диапазона.");
+            } catch (NumberFormatException e) {
+                IO.println("Ошибка: необходимо ввести целое число.");
+            }
+        }
+    }
+
+    // Для строк из файлов сохраняется и выводится только начало длинного текста.
+    private CharSequence limitStored(Rope text) {
+        if (!loadedFromFiles || text.length() <= MAX_STORED_TEXT_LENGTH) {
+            return text;
+        }
+        return text.subSequence(0, MAX_STORED_TEXT_LENGTH).concat("...");
+    }
+
     private boolean checkStringsAvailable() {
         if (firstString == null || secondString == null) {
-            IO.println("Ошибка: необходимо сначала ввести две строки (команда 3).");
+            IO.println("Ошибка: необходимо сначала ввести две строки (команда 3 или 12).");
             return false;
         }
         return true;
@@ -1,5 +1,6 @@
 package ex3.model;
 
+import common.Description;
 import common.Model;
 import static common.Model.IO;
 
@@ -18,6 +19,7 @@ public class Numeric extends Model {
         IO.println("2. Создать новую таблицу в MySQL.");
         IO.println("3. Проверить число на целостность и четность, результат сохранить в MySQL.");
         IO.println("4. Экспортировать данные из MySQL в Excel и вывести на экран.");
+        IO.println("5. Загрузить данные из Excel (.xlsx) в таблицу MySQL.");
     }
 
     @Override
@@ -29,6 +31,7 @@ public class Numeric extends Model {
             case "2" -> createTable(connection, "varchar(255)");
             case "3" -> validateNumber(connection);
             case "4" -> saveToExcel(connection);
+            case "5" -> loadFromExcel(connection);
             default -> IO.println("Неверный номер команды. Попробуйте снова.");
         }
     }
@@ -41,7 +44,11 @@ public class Numeric extends Model {
             number = Integer.parseInt(input);
         } catch (NumberFormatException e) {
             IO.println("Ошибка: введено не целое число или некорректный формат.");
-            finishQuery(connection, "ошибка: не целое число", "Попытка ввода: '" + input + "' - не целое число");
+            finishQuery(
+                connection,
+                "ошибка: не целое число",
+                Description.of("Попытка ввода: '", input, "' - не целое число")
+            );
             return;
         }
 
@@ -50,7 +57,7 @@ public class Numeric extends Model {
         String parityDescription = "Число " + number + " является " + parityResult;
 
         IO.println("\n" + parityDescription);
-        finishQuery(connection, parityResult, number + " -> " + parityResult + " (" + parityDescription + ")");
+        finishQuery(connection, parityResult, Description.of(number, " -> ", parityResult, " (", parityDescription, ")"));
     }
 }
 
@@ -0,0 +1,162 @@
+package ex4.model;
+
+import common.ChunkedText;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+
+final class CaseConverter {
+    private static final int ASCII_LIMIT = 0x80;
+    private static final int CYRILLIC_BASIC_END = 0x45F;
+    private static final int LATIN_CASE_SHIFT = 0x20;
+    private static final int CYRILLIC_EXTRA_SHIFT = 0x50;
+    // Языки, для которых String.toLowerCase/toUpperCase применяет особые правила (İ/ı, точки над i).
+    private static final Set<String> LOCALE_SENSITIVE_LANGUAGES = Set.of("tr", "az", "lt");
+
+    record Result(String lower, String upper) { }
+
+    private char[] source = new char[0];
+    private byte[] lowerBytes = new byte[0];
+    private byte[] upperBytes = new byte[0];
+    private char[] lowerChars = new char[0];
+    private char[] upperChars = new char[0];
+
+    Result convert(String str) {
+        Locale locale = Locale.getDefault();
+        if (LOCALE_SENSITIVE_LANGUAGES.contains(locale.getLanguage())) {
+            return new Result(str.toLowerCase(locale), str.toUpperCase(locale));
+        }
+
+        int length = str.length();
+        ensureCapacity(length);
+        str.getChars(0, length, source, 0);
+
+        int maxChar = maxChar(length);
+        if (maxChar < ASCII_LIMIT) {
+            convertAscii(length);
+            return new Result(
+                new String(lowerBytes, 0, length, StandardCharsets.ISO_8859_1),
+                new String(upperBytes, 0, length, StandardCharsets.ISO_8859_1)
+            );
+        }
+
+        if (maxChar <= CYRILLIC_BASIC_END && convertLatin1AndCyrillic(length)) {
+            return new Result(new String(lowerChars, 0, length), new String(upperChars, 0, length));
+        }
+
+        return new Result(str.toLowerCase(locale), str.toUpperCase(locale));
+    }
+
+    // Длинный текст обрабатывается окнами. Окно заканчивается после пробела: правила вроде
+    // конечной сигмы зависят от соседних букв, а пробел их разделяет (и не бывает половиной
+    // суррогатной пары). Если во второй половине окна пробела нет, окно расширяется до
+    // ближайшего пробела или до конца текста, поэтому текст без пробелов читается целиком.
+    void convert(ChunkedText text, Writer lower, Writer upper) throws IOException {
+        char[] window = new char[ChunkedText.CHUNK_SIZE];
+        int length = text.length();
+
+        for (int from = 0; from < length; ) {
+            int count = Math.min(ChunkedText.CHUNK_SIZE, length - from);
+            text.getChars(from, from + count, window, 0);
+
+            int cut = count;
+            if (from + count < length) {
+                cut = lastBreak(window, count / 2, count);
+                while (cut < 0 && from + count < length) {
+                    int more = Math.min(ChunkedText.CHUNK_SIZE, length - from - count);
+                    if (window.length < count + more) {
+                        window = Arrays.copyOf(window, Math.max(window.length * 2, count + more));
+                    }
+                    text.getChars(from + count, from + count + more, window, count);
+                    cut = firstBreak(window, count, count + more);
+                    count += more;
+                }
+                if (cut < 0) {
+                    cut = count;
+                }
+            }
+
+            Result chunk = convert(new String(window, 0, cut));
+            lower.write(chunk.lower());
+            upper.write(chunk.upper());
+            from += cut;
+        }
+    }
+
+    // Позиция после последнего (первого) пробела в window[from, to) или -1.
+    private static int lastBreak(char[] window, int from, int to) {
+        for (int i = to; i > from; --i) {
+            if (Character.isWhitespace(window[i - 1])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int firstBreak(char[] window, int from, int to) {
+        for (int i = from; i < to; ++i) {
+            if (Character.isWhitespace(window[i])) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    // Циклы ниже без ранних выходов и табличных обращений, только сравнения и условные
+    // выражения: C2 векторизует их, поэтому проход по строке идет блоками символов.
+    private int maxChar(int length) {
+        int max = 0;
+        for (int i = 0; i < length; ++i) {
+            max = Math.max(max, source[i]);
+        }
+        return max;
+    }
+
+    private void convertAscii(int length) {
+        for (int i = 0; i < length; ++i) {
+            char c = source[i];
+            lowerBytes[i] = (byte) (c >= 'A' && c <= 'Z' ? c + LATIN_CASE_SHIFT : c);
+            upperBytes[i] = (byte) (c >= 'a' && c <= 'z' ? c - LATIN_CASE_SHIFT : c);
+        }
+    }
+
+    // Latin-1 и основной блок кириллицы (U+0400–U+045F) отображаются сдвигом кода.
+    // µ, ß и ÿ выходят в верхнем регистре за пределы блока или меняют длину — для них,
+    // как и для символов между блоками, используются полные правила String.
+    private boolean convertLatin1AndCyrillic(int length) {
+        int unsupported = 0;
+
+        for (int i = 0; i < length; ++i) {
+            char c = source[i];
+
+            lowerChars[i] = (char) ((c >= 'A' && c <= 'Z')
+                || (c >= 0xC0 && c <= 0xDE && c != 0xD7)
+                || (c >= 0x410 && c <= 0x42F)
+                ? c + LATIN_CASE_SHIFT
+                : c >= 0x400 && c <= 0x40F ? c + CYRILLIC_EXTRA_SHIFT : c);
+            upperChars[i] = (char) ((c >= 'a' && c <= 'z')
+                || (c >= 0xE0 && c <= 0xFE && c != 0xF7)
+                || (c >= 0x430 && c <= 0x44F)
+                ? c - LATIN_CASE_SHIFT
+                : c >= 0x450 && c <= 0x45F ? c - CYRILLIC_EXTRA_SHIFT : c);
+            unsupported |= (c >= 0x100 && c < 0x400) || c == 0xB5 || c == 0xDF || c == 0xFF ? 1 : 0;
+        }
+
+        return unsupported == 0;
+    }
+
+    private void ensureCapacity(int length) {
+        if (source.length >= length) {
+            return;
+        }
+        source = new char[length];
+        lowerBytes = new byte[length];
+        upperBytes = new byte[length];
+        lowerChars = new char[length];
+        upperChars = new char[length];
+    }
+}
@@ -0,0 +1,406 @@
+package ex4.model;
+
+import common.BulkLoader;
+import common.Model.TableBlueprint;
+import common.RuntimeStatistics;
+
+import static common.Model.IO;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+// Построчная обработка файла: чтение -> ограниченная очередь -> N обработчиков -> запись
+// в исходном порядке строк. Число пачек в работе ограничено семафором, который освобождает
+// только запись, поэтому память не растет, даже если MySQL или диск медленнее чтения.
+final class LinePipeline {
+    private static final TableBlueprint BLUEPRINT = StringMethods.STRING_TABLE_BLUEPRINT;
+    private static final int LINES_PER_BATCH = 512;
+    private static final int BATCHES_PER_WORKER = 4;
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final long REPORT_INTERVAL_NANOS = 1_000_000_000L;
+    private static final Batch END = new Batch(-1, 0, new String[0]);
+
+    record Row(
+        String operationCode,
+        String lineLabel,
+        String firstValue,
+        String secondValue,
+        String resultValue,
+        Integer startIndex,
+        Integer endIndex,
+        Integer foundIndex,
+        Boolean endsWith,
+        String lowerCase,
+        String upperCase,
+        String operationDetails
+    ) {
+        Object[] values() {
+            return new Object[]{
+                operationCode, lineLabel, firstValue, secondValue, resultValue,
+                startIndex, endIndex, foundIndex, endsWith,
+                lowerCase, upperCase, operationDetails
+            };
+        }
+    }
+
+    // Обработчик создается на каждый поток, поэтому может держать изменяемое состояние.
+    @FunctionalInterface
+    interface LineOperation {
+        Row apply(long lineNumber, String line);
+    }
+
+    // loaded заполняется только при загрузке через LOAD DATA (-Dsql.bulk=true).
+    record Report(long lines, long rows, long nanos, List<BulkLoader.Loaded> loaded) {
+        double linesPerSecond() {
+            return nanos == 0 ? 0 : lines * 1e9 / nanos;
+        }
+
+        // Диапазоны id загрузок, смежные объединяются: "1-10000, 10006-12000".
+        String idRanges() {
+            StringBuilder ranges = new StringBuilder();
+            long first = -1;
+            long next = -1;
+            for (BulkLoader.Loaded load : loaded) {
+                if (load.firstId() != next) {
+                    appendRange(ranges, first, next);
+                    first = load.firstId();
+                }
+                next = load.firstId() + load.rows();
+            }
+            appendRange(ranges, first, next);
+            return ranges.toString();
+        }
+
+        private static void appendRange(StringBuilder ranges, long first, long next) {
+            if (first < 0) {
+                return;
+            }
+            if (!ranges.isEmpty()) {
+                ranges.append(", ");
+            }
+            ranges.append(first).append('-').append(next - 1);
+        }
+    }
+
+    private record Batch(long sequence, long firstLine, String[] lines) { }
+
+    private record Processed(long sequence, long lines, Row[] rows) { }
+
+    private final int workers;
+    private final Path outputFile;
+    private final Connection connection;
+    private final String table;
+
+    LinePipeline(int workers, Path outputFile, Connection connection, String table) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Необходим хотя бы один обработчик.");
+        }
+        if (outputFile == null && table == null) {
+            throw new IllegalArgumentException("Не задан ни файл, ни таблица для результата.");
+        }
+        this.workers = workers;
+        this.outputFile = outputFile;
+        this.connection = connection;
+        this.table = table;
+    }
+
+    Report run(Path input, Supplier<LineOperation> operations) throws IOException, SQLException {
+        BlockingQueue<Batch> pending = new ArrayBlockingQueue<>(workers * BATCHES_PER_WORKER);
+        Semaphore inFlight = new Semaphore(workers * BATCHES_PER_WORKER * 2);
+        ReorderBuffer completed = new ReorderBuffer();
+        ExecutorService executor = Executors.newFixedThreadPool(workers + 1);
+        long started = System.nanoTime();
+
+        try {
+            executor.execute(() -> readLines(input, pending, inFlight, completed));
+            for (int i = 0; i < workers; ++i) {
+                executor.execute(() -> processBatches(operations.get(), pending, completed));
+            }
+            return writeInOrder(completed, inFlight, started);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void readLines(
+        Path input,
+        BlockingQueue<Batch> pending,
+        Semaphore inFlight,
+        ReorderBuffer completed
+    ) {
+        long sequence = 0;
+        long lineNumber = 1;
+
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            ArrayList<String> lines = new ArrayList<>(LINES_PER_BATCH);
+            String line;
+
+            while (true) {
+                line = reader.readLine();
+                if (line != null) {
+                    lines.add(line);
+                }
+                if (lines.size() == LINES_PER_BATCH || (line == null && !lines.isEmpty())) {
+                    inFlight.acquire();
+                    pending.put(new Batch(sequence++, lineNumber, lines.toArray(new String[0])));
+                    lineNumber += lines.size();
+                    lines.clear();
+                }
+                if (line == null) {
+                    break;
+                }
+            }
+
+            completed.finish(sequence);
+            for (int i = 0; i < workers; ++i) {
+                pending.put(END);
+            }
+        } catch (IOException e) {
+            completed.fail(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void processBatches(
+        LineOperation operation,
+        BlockingQueue<Batch> pending,
+        ReorderBuffer completed
+    ) {
+        try {
+            while (true) {
+                Batch batch = pending.take();
+                if (batch == END) {
+                    return;
+                }
+
+                Row[] rows = new Row[batch.lines().length];
+                for (int i = 0; i < rows.length; ++i) {
+                    rows[i] = operation.apply(batch.firstLine() + i, batch.lines()[i]);
+                }
+                completed.put(new Processed(batch.sequence(), rows.length, rows));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            completed.fail(e);
+        }
+    }
+
+    private Report writeInOrder(ReorderBuffer completed, Semaphore inFlight, long started)
+        throws IOException, SQLException
+    {
+        long lines = 0;
+        long rows = 0;
+        long lastReport = started;
+
+        BulkLoader loader = table != null && BulkLoader.enabled()
+            ? new BulkLoader(connection, table, BLUEPRINT.columnList())
+            : null;
+
+        try (
+            BufferedWriter file = outputFile == null ? null : openOutputFile();
+            TableWriter tableWriter = table == null || loader != null ? null : new TableWriter(connection, table);
+            BulkLoader bulkLoader = loader
+        ) {
+            for (long sequence = 0; ; ++sequence) {
+                Processed processed = completed.take(sequence);
+                if (processed == null) {
+                    break;
+                }
+
+                for (Row row : processed.rows()) {
+                    if (row == null) {
+                        continue;
+                    }
+                    if (file != null) {
+                        writeTsv(file, row.values());
+                    }
+                    if (tableWriter != null) {
+                        tableWriter.add(row.values());
+                    }
+                    if (bulkLoader != null) {
+                        bulkLoader.add(row.values());
+                    }
+                    ++rows;
+                }
+                lines += processed.lines();
+                inFlight.release();
+
+                long now = System.nanoTime();
+                if (now - lastReport >= REPORT_INTERVAL_NANOS) {
+                    Report progress = new Report(lines, rows, now - started, List.of());
+                    IO.println(String.format(
+                        "Обработано строк: %d (%.0f строк/с)", lines, progress.linesPerSecond()
+                    ));
+                    lastReport = now;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Обработка прервана.", e);
+        }
+
+        long elapsed = System.nanoTime() - started;
+        return new Report(lines, rows, elapsed, loader != null ? loader.loaded() : List.of());
+    }
+
+    private BufferedWriter openOutputFile() throws IOException {
+        Path parent = outputFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        BufferedWriter writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8);
+        writer.write(String.join("\t", BLUEPRINT.columnList()));
+        writer.newLine();
+        return writer;
+    }
+
+    private static void writeTsv(BufferedWriter writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; ++i) {
+            if (i > 0) {
+                writer.write('\t');
+            }
+            if (values[i] == null) {
+                continue;
+            }
+
+            String value = values[i].toString();
+            if (!needsEscape(value)) {
+                writer.write(value);
+                continue;
+            }
+            for (int j = 0; j < value.length(); ++j) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\t' -> writer.write("\\t");
+                    case '\n' -> writer.write("\\n");
+                    case '\r' -> writer.write("\\r");
+                    case '\\' -> writer.write("\\\\");
+                    default -> writer.write(c);
+                }
+            }
+        }
+        writer.newLine();
+    }
+
+    private static boolean needsEscape(String value) {
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if (c == '\t' || c == '\n' || c == '\r' || c == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Готовые пачки приходят от обработчиков в произвольном порядке и ждут здесь своей
+    // очереди. Их число ограничено семафором, который держит чтение.
+    private static final class ReorderBuffer {
+        private final HashMap<Long, Processed> ready = new HashMap<>();
+        private long total = -1;
+        private Exception failure = null;
+
+        synchronized void put(Processed processed) {
+            ready.put(processed.sequence(), processed);
+            notifyAll();
+        }
+
+        synchronized void finish(long batches) {
+            total = batches;
+            notifyAll();
+        }
+
+        synchronized void fail(Exception e) {
+            if (failure == null) {
+                failure = e;
+            }
+            notifyAll();
+        }
+
+        synchronized Processed take(long sequence) throws InterruptedException, IOException {
+            while (true) {
+                if (failure instanceof IOException e) {
+                    throw e;
+                }
+                if (failure instanceof RuntimeException e) {
+                    throw e;
+                }
+
+                Processed processed = ready.remove(sequence);
+                if (processed != null) {
+                    return processed;
+                }
+                if (total >= 0 && sequence >= total) {
+                    return null;
+                }
+                wait();
+            }
+        }
+    }
+
+    // Вставка пачками в одной транзакции на пачку; исходный режим autocommit возвращается.
+    private static final class TableWriter implements AutoCloseable {
+        private final Connection connection;
+        private final PreparedStatement statement;
+        private final boolean autoCommit;
+        private int pendingRows = 0;
+
+        TableWriter(Connection connection, String table) throws SQLException {
+            this.connection = connection;
+            this.autoCommit = connection.getAutoCommit();
+            this.statement = connection.prepareStatement(BLUEPRINT.insertQuery(table));
+            connection.setAutoCommit(false);
+        }
+
+        void add(Object[] values) throws SQLException {
+            BLUEPRINT.bind(statement, values);
+            statement.addBatch();
+
+            if (++pendingRows == INSERT_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            if (pendingRows == 0) {
+                return;
+            }
+            long started = System.nanoTime();
+            statement.executeBatch();
+            connection.commit();
+            RuntimeStatistics.inserted(pendingRows, System.nanoTime() - started);
+            pendingRows = 0;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                flush();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                statement.close();
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package ex4.model;
+
+import common.CacheCounter;
+import common.RuntimeStatistics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Поиск по регулярному выражению с кэшем скомпилированных шаблонов (LRU по тексту и флагам).
+final class RegexSearch {
+    private static final int DEADLINE_CHECK_INTERVAL = 4096;
+
+    record Span(int start, int end) { }
+
+    record Match(Span span, List<Span> groups) { }
+
+    record Outcome(List<Match> matches, boolean truncated, boolean timedOut, boolean cached) { }
+
+    private record Key(String regex, int flags) { }
+
+    private final LinkedHashMap<Key, Pattern> cache;
+    private final CacheCounter counter = RuntimeStatistics.cache("regex");
+
+    RegexSearch(int capacity) {
+        this.cache = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Pattern> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    static int parseFlags(String letters) {
+        int flags = 0;
+        for (char letter : letters.toCharArray()) {
+            flags |= switch (letter) {
+                case 'i' -> Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+                case 'm' -> Pattern.MULTILINE;
+                case 's' -> Pattern.DOTALL;
+                case 'x' -> Pattern.COMMENTS;
+                case 'u' -> Pattern.UNICODE_CHARACTER_CLASS;
+                default -> throw new IllegalArgumentException("Неизвестный флаг `" + letter + "`.");
+            };
+        }
+        return flags;
+    }
+
+    long hits() {
+        return counter.hits();
+    }
+
+    long misses() {
+        return counter.misses();
+    }
+
+    // Бросает PatternSyntaxException, если шаблон некорректен.
+    Outcome findAll(CharSequence text, String regex, int flags, int limit, long timeoutMillis) {
+        Key key = new Key(regex, flags);
+        Pattern pattern = cache.get(key);
+        boolean cached = pattern != null;
+
+        if (cached) {
+            counter.hit();
+        } else {
+            counter.miss();
+            pattern = Pattern.compile(regex, flags);
+            cache.put(key, pattern);
+        }
+
+        CharSequence input = timeoutMillis > 0
+            ? new DeadlineText(text, System.nanoTime() + timeoutMillis * 1_000_000L)
+            : text;
+        Matcher matcher = pattern.matcher(input);
+        ArrayList<Match> matches = new ArrayList<>();
+
+        try {
+            while (matcher.find()) {
+                if (matches.size() == limit) {
+                    return new Outcome(matches, true, false, cached);
+                }
+
+                ArrayList<Span> groups = new ArrayList<>(matcher.groupCount());
+                for (int group = 1; group <= matcher.groupCount(); ++group) {
+                    groups.add(matcher.start(group) < 0
+                        ? null
+                        : new Span(matcher.start(group), matcher.end(group)));
+                }
+                matches.add(new Match(new Span(matcher.start(), matcher.end()), groups));
+            }
+        } catch (DeadlineExceeded e) {
+            return new Outcome(matches, false, true, cached);
+        }
+
+        return new Outcome(matches, false, false, cached);
+    }
+
+    // Matcher читает текст только через charAt, поэтому проверка времени здесь прерывает
+    // и катастрофический перебор с возвратами, не трогая сам движок регулярных выражений.
+    private static final class DeadlineText implements CharSequence {
+        private final CharSequence text;
+        private final long deadline;
+        private int reads = 0;
+
+        DeadlineText(CharSequence text, long deadline) {
+            this.text = text;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (++reads == DEADLINE_CHECK_INTERVAL) {
+                reads = 0;
+                if (System.nanoTime() - deadline > 0) {
+                    throw new DeadlineExceeded();
+                }
+            }
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new DeadlineText(text.subSequence(start, end), deadline);
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+
+    private static final class DeadlineExceeded extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        DeadlineExceeded() {
+            super(null, null, false, false);
+        }
+    }
+}
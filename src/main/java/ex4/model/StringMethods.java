@@ -1,19 +1,43 @@
 package ex4.model;
 
+import common.CharSequences;
+import common.Description;
+import common.MappedText;
 import common.Model;
 import common.Model.StructuredResult;
 import common.Model.StructuredResultBuilder;
 import common.Model.TableBlueprint;
+import common.Rope;
+import common.SavedQuery;
+import common.TextStatistics;
 import static common.Model.IO;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.sql.Connection;
-import java.util.Set;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.regex.PatternSyntaxException;
 
 public class StringMethods extends Model {
-    private String firstString = null;
-    private String secondString = null;
+    private CharSequence firstString = null;
+    private CharSequence secondString = null;
     private static final int MIN_STRING_LENGTH = 50;
-    private static final TableBlueprint STRING_TABLE_BLUEPRINT = TableBlueprint.builder()
+    private static final int MAX_STORED_TEXT_LENGTH = 16_000;
+    private static final Path OUTPUT_DIRECTORY = Path.of("build");
+    private static final int REGEX_CACHE_SIZE = 32;
+    private static final int MAX_REGEX_MATCHES = 1000;
+    private static final int REGEX_PREVIEW_MATCHES = 20;
+    private static final int REGEX_PREVIEW_LENGTH = 80;
+    private static final long DEFAULT_REGEX_TIMEOUT_MILLIS = 2000;
+    private static final int STATISTICS_TOP = 10;
+    // Столбцы таблицы результатов; построчная обработка (LinePipeline) пишет в те же столбцы.
+    static final TableBlueprint STRING_TABLE_BLUEPRINT = TableBlueprint.builder()
         .addColumn("operation_code", "varchar(32) NOT NULL")
         .addColumn("line_label", "varchar(32)")
         .addColumn("first_value", "TEXT NOT NULL")
@@ -27,7 +51,8 @@ public class StringMethods extends Model {
         .addColumn("upper_case", "TEXT")
         .addColumn("operation_details", "TEXT")
         .build();
-    private static final Set<String> REQUIRED_COLUMNS = STRING_TABLE_BLUEPRINT.columnNames();
+    private final CaseConverter caseConverter = new CaseConverter();
+    private final RegexSearch regexSearch = new RegexSearch(REGEX_CACHE_SIZE);
 
     @Override
     public String getDescribeMessage() {
@@ -43,6 +68,11 @@ public class StringMethods extends Model {
         IO.println("4. Перевод строк в верхний и нижний регистры, результат сохранить в MySQL с последующим выводом в консоль.");
         IO.println("5. Поиск подстроки и определение окончания строки, результат сохранить в MySQL с последующим выводом в консоль.");
         IO.println("6. Сохранить все данные (вышеполученные результаты) из MySQL в Excel и вывести на экран.");
+        IO.println("7. Загрузить две строки из текстовых файлов (UTF-8), сведения о файлах сохранить в MySQL.");
+        IO.println("8. Обработать каждую строку текстового файла (подстрока, регистр, поиск), результат записать в файл и/или MySQL.");
+        IO.println("9. Поиск по регулярному выражению (все совпадения и группы), результат сохранить в MySQL с последующим выводом в консоль.");
+        IO.println("10. Частоты символов, биграмм и триграмм строк, сводку сохранить в MySQL с последующим выводом в консоль.");
+        IO.println("11. Загрузить данные из Excel (.xlsx) в таблицу MySQL.");
     }
 
     @Override
@@ -55,6 +85,11 @@ public class StringMethods extends Model {
             case "4" -> convertStringCase(connection);
             case "5" -> searchSubstringAndCheckEnding(connection);
             case "6" -> saveToExcel(connection);
+            case "7" -> loadTwoStringsFromFiles(connection);
+            case "8" -> processFileLines(connection);
+            case "9" -> searchRegex(connection);
+            case "10" -> computeStatistics(connection);
+            case "11" -> loadFromExcel(connection);
             default -> IO.println("Неверный номер команды. Попробуйте снова.");
         }
     }
@@ -72,6 +107,30 @@ public class StringMethods extends Model {
         saveStringSnapshot(connection, "вторая", secondString);
     }
 
+    // Файлы отображаются в память, операции работают с ними как с CharSequence без копирования
+    // в кучу. В консоль и MySQL вместо содержимого файла попадают его путь и длина.
+    private void loadTwoStringsFromFiles(Connection connection) throws RuntimeException {
+        IO.println("\nУкажите пути к двум текстовым файлам (пустой ввод — отмена):");
+
+        MappedText firstFile = readTextFile("Путь к первому файлу: ");
+        if (firstFile == null) {
+            return;
+        }
+        MappedText secondFile = readTextFile("Путь ко второму файлу: ");
+        if (secondFile == null) {
+            return;
+        }
+
+        firstString = firstFile;
+        secondString = secondFile;
+
+        IO.println("\nСтроки успешно загружены:");
+        showStoredStrings();
+
+        saveStringSnapshot(connection, "первая", firstString);
+        saveStringSnapshot(connection, "вторая", secondString);
+    }
+
     private String readStringWithMinLength(String ordinal, int minLength) {
         String input = "";
         while (input.length() < minLength) {
@@ -113,8 +172,8 @@ public class StringMethods extends Model {
 
     private void showStoredStrings() {
         if (firstString != null && secondString != null) {
-            IO.println("Первая строка: " + firstString);
-            IO.println("Вторая строка: " + secondString);
+            IO.println(Rope.of("Первая строка: ").concat(display(firstString)));
+            IO.println(Rope.of("Вторая строка: ").concat(display(secondString)));
         }
     }
 
@@ -133,7 +192,7 @@ public class StringMethods extends Model {
         }
     }
 
-    private void extractSubstringForString(Connection connection, String str, String ordinal, int num) {
+    private void extractSubstringForString(Connection connection, CharSequence str, String ordinal, int num) {
         IO.println("\nИзвлечение подстроки из " + ordinal + " строки:");
         int startIndex = Integer.parseInt(IO.readln("Введите начальный индекс подстроки для " + ordinal + " строки: "));
         int endIndex = Integer.parseInt(IO.readln("Введите конечный индекс подстроки для " + ordinal + " строки: "));
@@ -143,9 +202,13 @@ public class StringMethods extends Model {
             return;
         }
 
-        String substring = str.substring(startIndex, endIndex);
-        IO.println("\n" + (num == 1 ? "Первая" : "Вторая") + " строка: '" + str + "'");
-        IO.println("Извлеченная подстрока из " + ordinal + " строки: '" + substring + "'");
+        // Подстрока — представление над исходной строкой: символы не копируются ни при выводе,
+        // ни при сохранении (параметр передается потоком через setCharacterStream).
+        Rope substring = Rope.of(str).subSequence(startIndex, endIndex);
+        IO.println(Rope.of("\n" + (num == 1 ? "Первая" : "Вторая") + " строка: '").concat(display(str)).concat("'"));
+        IO.println(
+            Rope.of("Извлеченная подстрока из " + ordinal + " строки: '").concat(substring).concat("'")
+        );
         IO.println("Индексы: с " + startIndex + " по " + endIndex);
 
         saveSubstringResult(
@@ -169,9 +232,15 @@ public class StringMethods extends Model {
         convertCaseForString(connection, secondString, "второй");
     }
 
-    private void convertCaseForString(Connection connection, String str, String ordinal) {
-        String lower = str.toLowerCase();
-        String upper = str.toUpperCase();
+    private void convertCaseForString(Connection connection, CharSequence str, String ordinal) {
+        if (str instanceof MappedText file) {
+            convertCaseForFile(connection, file, ordinal);
+            return;
+        }
+
+        CaseConverter.Result cases = caseConverter.convert(str.toString());
+        String lower = cases.lower();
+        String upper = cases.upper();
 
         IO.println("\n" + (ordinal.equals("первой") ? "Первая" : "Вторая") + " строка: '" + str + "'");
         IO.println("В нижнем регистре: '" + lower + "'");
@@ -180,6 +249,39 @@ public class StringMethods extends Model {
         saveCaseResult(connection, str, ordinal, lower, upper);
     }
 
+    // Результат для файла не помещается ни в консоль, ни в столбец TEXT: он пишется потоком
+    // в файлы рядом со сборкой, а сохраняются пути к ним.
+    private void convertCaseForFile(Connection connection, MappedText file, String ordinal) {
+        String name = file.path().getFileName().toString();
+        Path lowerPath = OUTPUT_DIRECTORY.resolve(name + ".lower.txt");
+        Path upperPath = OUTPUT_DIRECTORY.resolve(name + ".upper.txt");
+
+        try {
+            Files.createDirectories(OUTPUT_DIRECTORY);
+            try (
+                Writer lower = Files.newBufferedWriter(lowerPath, StandardCharsets.UTF_8);
+                Writer upper = Files.newBufferedWriter(upperPath, StandardCharsets.UTF_8)
+            ) {
+                caseConverter.convert(file, lower, upper);
+            }
+        } catch (IOException e) {
+            IO.println("Ошибка: не удалось записать результат преобразования (" + e.getMessage() + ").");
+            return;
+        }
+
+        IO.println("\n" + (ordinal.equals("первой") ? "Первая" : "Вторая") + " строка: " + file.describe());
+        IO.println("В нижнем регистре: " + lowerPath.toAbsolutePath());
+        IO.println("В верхнем регистре: " + upperPath.toAbsolutePath());
+
+        saveCaseResult(
+            connection,
+            file,
+            ordinal,
+            lowerPath.toAbsolutePath().toString(),
+            upperPath.toAbsolutePath().toString()
+        );
+    }
+
     private void searchSubstringAndCheckEnding(Connection connection) throws RuntimeException {
         if (!ensureStringsPrepared(connection)) {
             return;
@@ -191,16 +293,20 @@ public class StringMethods extends Model {
         searchSubstringInString(connection, secondString, "второй", 2, searchSubstring);
     }
 
-    private void searchSubstringInString(Connection connection, String str, String ordinal, int num, String searchSubstring) {
+    private void searchSubstringInString(Connection connection, CharSequence str, String ordinal, int num, String searchSubstring) {
         IO.println("\nПоиск подстроки в " + ordinal + " строке:");
-        int foundIndex = str.indexOf(searchSubstring);
-        boolean endsWith = str.endsWith(searchSubstring);
+        int foundIndex = CharSequences.indexOf(str, searchSubstring);
+        boolean endsWith = CharSequences.endsWith(str, searchSubstring);
 
         String strName = num == 1 ? "Первая" : "Вторая";
         String strNum = " (строка " + num + ")";
 
         if (foundIndex == -1) {
-            IO.println("Подстрока '" + searchSubstring + "' не найдена в " + ordinal + " строке '" + str + "'");
+            IO.println(
+                Rope.of("Подстрока '" + searchSubstring + "' не найдена в " + ordinal + " строке '")
+                    .concat(display(str))
+                    .concat("'")
+            );
             IO.println(strName + " строка не заканчивается на указанную подстроку: false");
 
             saveSearchResult(
@@ -228,17 +334,442 @@ public class StringMethods extends Model {
         }
     }
 
-    private void saveStringSnapshot(Connection connection, String label, String value)
+    private void searchRegex(Connection connection) throws RuntimeException {
+        if (!ensureStringsPrepared(connection)) {
+            return;
+        }
+
+        String regex = IO.readln("\nВведите регулярное выражение: ");
+        int flags = readRegexFlags();
+        long timeoutMillis = readRegexTimeout();
+
+        try {
+            searchRegexInString(connection, firstString, "первой", regex, flags, timeoutMillis);
+            searchRegexInString(connection, secondString, "второй", regex, flags, timeoutMillis);
+        } catch (PatternSyntaxException e) {
+            IO.println("Ошибка: некорректное регулярное выражение.");
+            IO.println(e.getMessage());
+        }
+
+        IO.println("\nКэш шаблонов: попаданий " + regexSearch.hits() + ", промахов " + regexSearch.misses());
+    }
+
+    private void searchRegexInString(
+        Connection connection,
+        CharSequence str,
+        String ordinal,
+        String regex,
+        int flags,
+        long timeoutMillis
+    ) throws RuntimeException {
+        long started = System.nanoTime();
+        RegexSearch.Outcome outcome = regexSearch.findAll(str, regex, flags, MAX_REGEX_MATCHES, timeoutMillis);
+        double elapsedMillis = (System.nanoTime() - started) / 1e6;
+        List<RegexSearch.Match> matches = outcome.matches();
+
+        IO.println("\nПоиск по шаблону в " + ordinal + " строке:");
+        IO.println("Совпадений: " + matches.size()
+            + (outcome.truncated() ? " (показаны первые " + MAX_REGEX_MATCHES + ")" : ""));
+        if (outcome.timedOut()) {
+            IO.println("Поиск остановлен по истечении " + timeoutMillis + " мс.");
+        }
+
+        StringBuilder spans = new StringBuilder();
+        for (int i = 0; i < matches.size(); ++i) {
+            RegexSearch.Match match = matches.get(i);
+            if (i < REGEX_PREVIEW_MATCHES) {
+                IO.println(describeRegexMatch(str, match));
+            } else if (i == REGEX_PREVIEW_MATCHES) {
+                IO.println("... и еще " + (matches.size() - REGEX_PREVIEW_MATCHES) + " совпадений.");
+            }
+
+            if (spans.length() < MAX_STORED_TEXT_LENGTH) {
+                if (!spans.isEmpty()) {
+                    spans.append("; ");
+                }
+                appendSpan(spans, match.span());
+                for (RegexSearch.Span group : match.groups()) {
+                    spans.append(' ');
+                    if (group == null) {
+                        spans.append('-');
+                    } else {
+                        appendSpan(spans, group);
+                    }
+                }
+            }
+        }
+        if (spans.length() > MAX_STORED_TEXT_LENGTH) {
+            spans.setLength(MAX_STORED_TEXT_LENGTH);
+            spans.append("...");
+        }
+
+        String status = outcome.timedOut() ? "прервано по таймауту" : "завершено";
+        StructuredResult result = baseResultBuilder(
+            "Регулярное выражение (" + ordinal + "): совпадений " + matches.size(),
+            Description.of("Шаблон '", regex, "' в ", ordinal, " строке: совпадений ", matches.size(), ", ", status),
+            "REGEX",
+            ordinal,
+            str
+        )
+            .put("second_value", regex)
+            .put("result_value", matches.isEmpty() ? "не найдено" : spans.toString())
+            .put("found_index", matches.isEmpty() ? null : matches.get(0).span().start())
+            .put("operation_details", String.format(
+                "флаги %d, совпадений %d, %s, %.2f мс, шаблон %s",
+                flags,
+                matches.size(),
+                status,
+                elapsedMillis,
+                outcome.cached() ? "из кэша" : "скомпилирован"
+            ))
+            .build();
+
+        finishStructuredQuery(connection, result);
+    }
+
+    private static String describeRegexMatch(CharSequence str, RegexSearch.Match match) {
+        StringBuilder description = new StringBuilder();
+        appendSpan(description, match.span());
+        description.append(" '").append(preview(str, match.span())).append("'");
+
+        for (int group = 0; group < match.groups().size(); ++group) {
+            RegexSearch.Span span = match.groups().get(group);
+            description.append(", группа ").append(group + 1).append(": ");
+            if (span == null) {
+                description.append("-");
+            } else {
+                description.append("'").append(preview(str, span)).append("'");
+            }
+        }
+        return description.toString();
+    }
+
+    private static CharSequence preview(CharSequence str, RegexSearch.Span span) {
+        int end = Math.min(span.end(), span.start() + REGEX_PREVIEW_LENGTH);
+        CharSequence fragment = str.subSequence(span.start(), end);
+        return end < span.end() ? fragment + "..." : fragment;
+    }
+
+    private static void appendSpan(StringBuilder builder, RegexSearch.Span span) {
+        builder.append('[').append(span.start()).append(", ").append(span.end()).append(')');
+    }
+
+    private int readRegexFlags() {
+        while (true) {
+            String letters = IO.readln(
+                "Флаги (i — без учета регистра, m — многострочный, s — точка и перевод строки, "
+                    + "x — комментарии, u — классы Unicode; пусто — без флагов): "
+            ).trim();
+            try {
+                return RegexSearch.parseFlags(letters);
+            } catch (IllegalArgumentException e) {
+                IO.println("Ошибка: " + e.getMessage());
+            }
+        }
+    }
+
+    private long readRegexTimeout() {
+        while (true) {
+            String answer = IO.readln(
+                "Ограничение времени поиска, мс (пусто — " + DEFAULT_REGEX_TIMEOUT_MILLIS + ", 0 — без ограничения): "
+            ).trim();
+            if (answer.isEmpty()) {
+                return DEFAULT_REGEX_TIMEOUT_MILLIS;
+            }
+            try {
+                long timeout = Long.parseLong(answer);
+                if (timeout >= 0) {
+                    return timeout;
+                }
+                IO.println("Ошибка: значение не может быть отрицательным.");
+            } catch (NumberFormatException e) {
+                IO.println("Ошибка: необходимо ввести целое число.");
+            }
+        }
+    }
+
+    private void computeStatistics(Connection connection) throws RuntimeException {
+        if (!ensureStringsPrepared(connection)) {
+            return;
+        }
+
+        computeStatisticsForString(connection, firstString, "первой");
+        computeStatisticsForString(connection, secondString, "второй");
+    }
+
+    private void computeStatisticsForString(Connection connection, CharSequence str, String ordinal)
+        throws RuntimeException
+    {
+        long started = System.nanoTime();
+        TextStatistics statistics = TextStatistics.of(str);
+        String topChars = TextStatistics.format(statistics.topChars(STATISTICS_TOP));
+        String topBigrams = TextStatistics.format(statistics.topBigrams(STATISTICS_TOP));
+        String topTrigrams = TextStatistics.format(statistics.topTrigrams(STATISTICS_TOP));
+        double elapsedMillis = (System.nanoTime() - started) / 1e6;
+        String summary = statistics.summary(STATISTICS_TOP);
+
+        IO.println("\nСтатистика " + ordinal + " строки:");
+        IO.println("Символов: " + statistics.length()
+            + ", кодовых точек: " + statistics.codePoints()
+            + ", байт в UTF-8: " + statistics.utf8Bytes()
+            + ", различных символов: " + statistics.distinctChars());
+        IO.println("Частые символы: " + topChars);
+        IO.println("Частые биграммы: " + topBigrams);
+        IO.println("Частые триграммы: " + topTrigrams);
+
+        StructuredResult result = baseResultBuilder(
+            "Статистика (" + ordinal + "): символов " + statistics.length(),
+            Description.of("Статистика ", ordinal, " строки: ", summary),
+            "STATS",
+            ordinal,
+            str
+        )
+            .put("result_value", summary)
+            .put("operation_details", String.format(
+                "кодовых точек %d, байт UTF-8 %d, %.2f мс",
+                statistics.codePoints(),
+                statistics.utf8Bytes(),
+                elapsedMillis
+            ))
+            .build();
+
+        finishStructuredQuery(connection, result);
+    }
+
+    private void processFileLines(Connection connection) throws RuntimeException {
+        Path input = readInputFile();
+        if (input == null) {
+            return;
+        }
+
+        String operationCode = selectLineOperation();
+        Supplier<LinePipeline.LineOperation> operations = switch (operationCode) {
+            case "SUBSTRING" -> substringLineOperation();
+            case "CASE" -> caseLineOperation();
+            default -> searchLineOperation();
+        };
+
+        String target = selectLineOutput();
+        Path outputFile = target.equals("MYSQL")
+            ? null
+            : OUTPUT_DIRECTORY.resolve(
+                input.getFileName() + "." + operationCode.toLowerCase() + ".tsv"
+            );
+        String table = null;
+        if (!target.equals("FILE")) {
+            table = chooseTableWithColumns(
+                connection,
+                "построчная обработка файла " + input.getFileName(),
+                STRING_TABLE_BLUEPRINT.columnNames()
+            );
+            if (table == null) {
+                return;
+            }
+            // Пакетная вставка временно отключает autocommit: фоновая запись должна закончиться.
+            awaitPendingWrites();
+        }
+
+        int workers = Runtime.getRuntime().availableProcessors();
+        LinePipeline.Report report;
+        try {
+            report = new LinePipeline(workers, outputFile, connection, table).run(input, operations);
+        } catch (IOException | SQLException e) {
+            IO.println("Ошибка: построчная обработка прервана (" + e.getMessage() + ").");
+            return;
+        }
+
+        String summary = String.format(
+            "%s: строк %d, записей %d за %.2f с (%.0f строк/с, обработчиков: %d)",
+            operationCode,
+            report.lines(),
+            report.rows(),
+            report.nanos() / 1e9,
+            report.linesPerSecond(),
+            workers
+        );
+
+        IO.println("\nФайл " + input.toAbsolutePath() + " обработан.");
+        IO.println(summary);
+        if (outputFile != null) {
+            IO.println("Результат записан в файл: " + outputFile.toAbsolutePath());
+        }
+        if (table != null) {
+            String ids = report.loaded().isEmpty()
+                ? report.rows() + " строк"
+                : report.rows() + " строк, id " + report.idRanges();
+            savedQueries_.add(new SavedQuery(
+                ids,
+                "Построчная обработка " + input.toAbsolutePath() + " — " + summary,
+                table
+            ));
+            IO.println("\nЗначения сохранены.");
+        }
+    }
+
+    private Path readInputFile() {
+        while (true) {
+            String answer = IO.readln("\nПуть к текстовому файлу (пустой ввод — отмена): ").trim();
+            if (answer.isEmpty()) {
+                return null;
+            }
+
+            try {
+                Path path = Path.of(answer);
+                if (Files.isRegularFile(path) && Files.isReadable(path)) {
+                    return path;
+                }
+                IO.println("Ошибка: файл `" + answer + "` не найден или недоступен для чтения.");
+            } catch (InvalidPathException e) {
+                IO.println("Ошибка: некорректный путь `" + answer + "`.");
+            }
+        }
+    }
+
+    private String selectLineOperation() {
+        while (true) {
+            IO.println("\nВыберите операцию для каждой строки файла:");
+            IO.println("1. Подстрока по индексам.");
+            IO.println("2. Перевод в нижний и верхний регистры.");
+            IO.println("3. Поиск подстроки и проверка окончания строки.");
+
+            switch (IO.readln("Операция: ").trim()) {
+                case "1" -> {
+                    return "SUBSTRING";
+                }
+                case "2" -> {
+                    return "CASE";
+                }
+                case "3" -> {
+                    return "SEARCH";
+                }
+                default -> IO.println("Ошибка: номер вне допустимого диапазона.");
+            }
+        }
+    }
+
+    private String selectLineOutput() {
+        while (true) {
+            IO.println("\nКуда записать результат:");
+            IO.println("1. В файл.");
+            IO.println("2. В таблицу MySQL.");
+            IO.println("3. В файл и в таблицу MySQL.");
+
+            switch (IO.readln("Вариант: ").trim()) {
+                case "1" -> {
+                    return "FILE";
+                }
+                case "2" -> {
+                    return "MYSQL";
+                }
+                case "3" -> {
+                    return "BOTH";
+                }
+                default -> IO.println("Ошибка: номер вне допустимого диапазона.");
+            }
+        }
+    }
+
+    private Supplier<LinePipeline.LineOperation> substringLineOperation() {
+        int startIndex = readNonNegativeIndex("Введите начальный индекс подстроки: ");
+        int endIndex = readNonNegativeIndex("Введите конечный индекс подстроки: ");
+        while (endIndex <= startIndex) {
+            IO.println("Ошибка: конечный индекс должен быть больше начального.");
+            endIndex = readNonNegativeIndex("Введите конечный индекс подстроки: ");
+        }
+
+        int start = startIndex;
+        int end = endIndex;
+        return () -> (lineNumber, line) -> {
+            boolean fits = end <= line.length();
+            return new LinePipeline.Row(
+                "SUBSTRING",
+                "строка " + lineNumber,
+                line,
+                null,
+                fits ? line.substring(start, end) : null,
+                start,
+                end,
+                null,
+                null,
+                null,
+                null,
+                "Строка " + lineNumber + (fits ? ", индексы " + start + "-" + end : ": индексы вне строки")
+            );
+        };
+    }
+
+    // У каждого обработчика свой CaseConverter: его буферы переиспользуются между строками.
+    private Supplier<LinePipeline.LineOperation> caseLineOperation() {
+        return () -> {
+            CaseConverter converter = new CaseConverter();
+            return (lineNumber, line) -> {
+                CaseConverter.Result cases = converter.convert(line);
+                return new LinePipeline.Row(
+                    "CASE",
+                    "строка " + lineNumber,
+                    line,
+                    null,
+                    cases.lower(),
+                    null,
+                    null,
+                    null,
+                    null,
+                    cases.lower(),
+                    cases.upper(),
+                    "lower/upper для строки " + lineNumber
+                );
+            };
+        };
+    }
+
+    private Supplier<LinePipeline.LineOperation> searchLineOperation() {
+        String searchSubstring = IO.readln("\nВведите подстроку для поиска: ");
+
+        return () -> (lineNumber, line) -> {
+            int foundIndex = line.indexOf(searchSubstring);
+            boolean endsWith = line.endsWith(searchSubstring);
+            return new LinePipeline.Row(
+                "SEARCH",
+                "строка " + lineNumber,
+                line,
+                searchSubstring,
+                foundIndex >= 0 ? "найдено" : "не найдено",
+                null,
+                null,
+                foundIndex >= 0 ? foundIndex : null,
+                endsWith,
+                null,
+                null,
+                "Строка " + lineNumber + ": конец совпадает — " + endsWith
+            );
+        };
+    }
+
+    private int readNonNegativeIndex(String prompt) {
+        while (true) {
+            try {
+                int index = Integer.parseInt(IO.readln(prompt).trim());
+                if (index >= 0) {
+                    return index;
+                }
+                IO.println("Ошибка: индекс не может быть отрицательным.");
+            } catch (NumberFormatException e) {
+                IO.println("Ошибка: введен некорректный индекс.");
+            }
+        }
+    }
+
+    private void saveStringSnapshot(Connection connection, String label, CharSequence value)
         throws RuntimeException
     {
         StructuredResult result = baseResultBuilder(
             "Строка (" + label + ") сохранена",
-            "Значение " + label + " строки: " + value,
+            Description.of("Значение ", label, " строки: ", display(value)),
             "INPUT",
             label,
             value
         )
-            .put("result_value", value)
+            .put("result_value", display(value))
             .build();
 
         finishStructuredQuery(connection, result);
@@ -246,24 +777,26 @@ public class StringMethods extends Model {
 
     private void saveSubstringResult(
         Connection connection,
-        String original,
-        String substring,
+        CharSequence original,
+        Rope substring,
         int startIndex,
         int endIndex,
         String ordinal,
         int lineNum
     ) throws RuntimeException {
-        String description = "Подстрока '" + substring + "' из " + ordinal + " строки '" + original
-            + "' (индексы: " + startIndex + "-" + endIndex + ")";
+        Description description = Description.of(
+            "Подстрока '", substring, "' из ", ordinal, " строки '", display(original),
+            "' (индексы: ", startIndex, "-", endIndex, ")"
+        );
 
         StructuredResult result = baseResultBuilder(
-            "Подстрока (" + ordinal + ") = '" + substring + "'",
+            Rope.of("Подстрока (" + ordinal + ") = '").concat(substring).concat("'"),
             description,
             "SUBSTRING",
             ordinal,
             original
         )
-            .put("result_value", substring)
+            .put("result_value", limitStored(substring))
             .put("start_index", startIndex)
             .put("end_index", endIndex)
             .put("operation_details", "Строка " + lineNum + ", индексы " + startIndex + "-" + endIndex)
@@ -274,13 +807,14 @@ public class StringMethods extends Model {
 
     private void saveCaseResult(
         Connection connection,
-        String original,
+        CharSequence original,
         String ordinal,
         String lower,
         String upper
     ) throws RuntimeException {
-        String description = "Регистр " + ordinal + " строки '" + original + "': нижний '" + lower
-            + "', верхний '" + upper + "'";
+        Description description = Description.of(
+            "Регистр ", ordinal, " строки '", display(original), "': нижний '", lower, "', верхний '", upper, "'"
+        );
 
         StructuredResult result = baseResultBuilder(
             "Регистры (" + ordinal + ")",
@@ -300,7 +834,7 @@ public class StringMethods extends Model {
 
     private void saveSearchResult(
         Connection connection,
-        String original,
+        CharSequence original,
         String ordinal,
         int lineNum,
         String searchSubstring,
@@ -310,7 +844,9 @@ public class StringMethods extends Model {
         String foundText = foundIndex >= 0
             ? "найдена на позиции " + foundIndex
             : "не найдена";
-        String description = "Подстрока '" + searchSubstring + "' " + foundText + " в " + ordinal + " строке.";
+        Description description = Description.of(
+            "Подстрока '", searchSubstring, "' ", foundText, " в ", ordinal, " строке."
+        );
 
         StructuredResultBuilder builder = baseResultBuilder(
             "Поиск (" + ordinal + "): " + foundText,
@@ -334,19 +870,30 @@ public class StringMethods extends Model {
     }
 
     private StructuredResultBuilder baseResultBuilder(
-        String preview,
-        String description,
+        CharSequence preview,
+        CharSequence description,
         String operationCode,
         String lineLabel,
-        String sourceValue
+        CharSequence sourceValue
     ) {
-        return structuredResultBuilder()
+        return structuredResultBuilder(STRING_TABLE_BLUEPRINT)
             .preview(preview)
             .description(description)
-            .requiredColumns(REQUIRED_COLUMNS)
             .put("operation_code", operationCode)
             .put("line_label", lineLabel)
-            .put("first_value", sourceValue);
+            .put("first_value", display(sourceValue));
+    }
+
+    private static CharSequence display(CharSequence value) {
+        return value instanceof MappedText file ? file.describe() : value;
+    }
+
+    // Подстрока файла может быть сколь угодно длинной: в MySQL уходит только ее начало.
+    private static CharSequence limitStored(Rope text) {
+        if (text.length() <= MAX_STORED_TEXT_LENGTH) {
+            return text;
+        }
+        return text.subSequence(0, MAX_STORED_TEXT_LENGTH).concat("...");
     }
 }
 
@@ -0,0 +1,168 @@
+package common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteAheadLogTest {
+    private static final List<String> COLUMNS = List.of("result", "count");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void pendingEntriesSurviveReopen() throws IOException {
+        Path path = directory.resolve("journal.wal");
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            log.append("sums", COLUMNS, List.of("первая", 1));
+            log.append("sums", COLUMNS, List.of("вторая", 2));
+        }
+
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            assertEquals(2, log.pendingCount());
+        }
+    }
+
+    @Test
+    void tornTailIsDropped() throws IOException {
+        Path path = directory.resolve("journal.wal");
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            log.append("sums", COLUMNS, List.of("первая", 1));
+            log.append("sums", COLUMNS, List.of("вторая", 2));
+        }
+
+        // Последняя запись оборвана на середине.
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            assertEquals(1, log.pendingCount());
+            log.append("sums", COLUMNS, List.of("третья", 3));
+        }
+
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            assertEquals(2, log.pendingCount());
+        }
+    }
+
+    @Test
+    void corruptedRecordIsDropped() throws IOException {
+        Path path = directory.resolve("journal.wal");
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            log.append("sums", COLUMNS, List.of("первая", 1));
+            log.append("sums", COLUMNS, List.of("вторая", 2));
+        }
+
+        // Байт данных последней записи испорчен: контрольная сумма не совпадет.
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            last.put(0, (byte) (last.get(0) ^ 0x5a)).rewind();
+            channel.write(last, channel.size() - 1);
+        }
+
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            assertEquals(1, log.pendingCount());
+        }
+    }
+
+    @Test
+    void reopenKeepsOnlyPendingEntries() throws IOException {
+        Path path = directory.resolve("journal.wal");
+        long full;
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            long first = log.append("sums", COLUMNS, List.of("первая", 1));
+            log.append("sums", COLUMNS, List.of("вторая", 2));
+            long third = log.append("sums", COLUMNS, List.of("третья", 3));
+            log.done(first);
+            log.done(third);
+        }
+        full = Files.size(path);
+
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            assertEquals(1, log.pendingCount());
+        }
+        assertTrue(Files.size(path) < full / 3);
+        assertTrue(Files.notExists(directory.resolve("journal.wal.compact")));
+
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            assertEquals(1, log.pendingCount());
+        }
+    }
+
+    @Test
+    void emptyLogAfterAllDone() throws IOException {
+        Path path = directory.resolve("journal.wal");
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            log.done(log.append("sums", COLUMNS, List.of("первая", 1)));
+        }
+
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            assertEquals(0, log.pendingCount());
+        }
+        assertEquals(0, Files.size(path));
+    }
+
+    @Test
+    void transientFailureWaitsForRetry() throws IOException {
+        Path path = directory.resolve("journal.wal");
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            long sequence = log.append("sums", COLUMNS, List.of("первая", 1));
+            assertEquals(0, log.retryCount());
+
+            log.failed(sequence, new SQLTransientConnectionException("нет связи"));
+            assertEquals(1, log.retryCount());
+            assertEquals(1, log.pendingCount());
+        }
+
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            assertEquals(1, log.retryCount());
+        }
+    }
+
+    @Test
+    void rejectedValueLeavesJournal() throws IOException {
+        Path path = directory.resolve("journal.wal");
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            long sequence = log.append("sums", COLUMNS, List.of("первая", 1));
+            log.failed(sequence, new SQLSyntaxErrorException("Table 'sums' doesn't exist", "42S02"));
+            assertEquals(0, log.pendingCount());
+            assertEquals(0, log.retryCount());
+        }
+
+        String rejected = Files.readString(directory.resolve("journal.wal.rejected"));
+        assertTrue(rejected.contains("`sums`"));
+        assertTrue(rejected.contains("первая"));
+
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            assertEquals(0, log.pendingCount());
+        }
+    }
+
+    @Test
+    void onlyConnectionAndTransientErrorsAreRetried() {
+        assertTrue(WriteAheadLog.isTransient(new SQLException("Communications link failure", "08S01")));
+        assertTrue(WriteAheadLog.isTransient(new SQLTransactionRollbackException("Deadlock", "40001")));
+        assertTrue(WriteAheadLog.isTransient(new RuntimeException(new SQLTransientConnectionException())));
+        assertFalse(WriteAheadLog.isTransient(new SQLIntegrityConstraintViolationException("Duplicate", "23000")));
+        assertFalse(WriteAheadLog.isTransient(new SQLException("Data too long", "22001")));
+        assertFalse(WriteAheadLog.isTransient(new IllegalStateException()));
+    }
+}
@@ -0,0 +1,122 @@
+package ex2.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MyersDiffTest {
+    private static final int LENGTH = 50_000;
+    private static final int CHANGES = 20;
+
+    @Test
+    void nearIdenticalStrings() {
+        Random random = new Random(1);
+        String first = randomText(random, LENGTH, 'a', 'z');
+        StringBuilder second = new StringBuilder(first);
+        for (int position : distinctPositions(random, LENGTH, CHANGES)) {
+            second.setCharAt(position, Character.toUpperCase(second.charAt(position)));
+        }
+
+        List<MyersDiff.Edit> edits = diff(first, second.toString(), MyersDiff.Granularity.CHARACTERS);
+
+        // Заглавных букв в первой строке нет, поэтому каждая замена стоит ровно -1 +1.
+        assertEquals(CHANGES, changed(edits, MyersDiff.Operation.DELETE));
+        assertEquals(CHANGES, changed(edits, MyersDiff.Operation.INSERT));
+    }
+
+    @Test
+    void totallyDifferentStrings() {
+        Random random = new Random(2);
+        String first = randomText(random, LENGTH, 'a', 'm');
+        String second = randomText(random, LENGTH, 'n', 'z');
+
+        List<MyersDiff.Edit> edits = diff(first, second, MyersDiff.Granularity.CHARACTERS);
+
+        assertEquals(0, changed(edits, MyersDiff.Operation.EQUAL));
+        assertEquals(first.length(), changed(edits, MyersDiff.Operation.DELETE));
+        assertEquals(second.length(), changed(edits, MyersDiff.Operation.INSERT));
+    }
+
+    @Test
+    void insertedWord() {
+        Random random = new Random(3);
+        StringBuilder words = new StringBuilder();
+        while (words.length() < LENGTH) {
+            words.append(randomText(random, 1 + random.nextInt(8), 'a', 'f')).append(' ');
+        }
+        String first = words.toString();
+        int boundary = first.indexOf(' ', LENGTH / 2);
+        String second = first.substring(0, boundary) + " вставка" + first.substring(boundary);
+
+        List<MyersDiff.Edit> edits = diff(first, second, MyersDiff.Granularity.WORDS);
+
+        assertEquals(0, changed(edits, MyersDiff.Operation.DELETE));
+        assertEquals(" вставка".length(), changed(edits, MyersDiff.Operation.INSERT));
+    }
+
+    @Test
+    void identicalAndEmptyStrings() {
+        List<MyersDiff.Edit> same = diff("одна строка", "одна строка", MyersDiff.Granularity.CHARACTERS);
+        assertEquals(0, changed(same, MyersDiff.Operation.DELETE) + changed(same, MyersDiff.Operation.INSERT));
+
+        List<MyersDiff.Edit> added = diff("", "новая", MyersDiff.Granularity.CHARACTERS);
+        assertEquals("+5", MyersDiff.toScript(added));
+
+        List<MyersDiff.Edit> removed = diff("старая", "", MyersDiff.Granularity.WORDS);
+        assertEquals("-6", MyersDiff.toScript(removed));
+    }
+
+    // Правки должны покрывать первую строку подряд и собирать из нее вторую.
+    private static List<MyersDiff.Edit> diff(String first, String second, MyersDiff.Granularity granularity) {
+        List<MyersDiff.Edit> edits = MyersDiff.diff(first, second, granularity);
+
+        StringBuilder result = new StringBuilder();
+        int position = 0;
+        for (MyersDiff.Edit edit : edits) {
+            assertEquals(position, edit.firstStart());
+            assertTrue(edit.length() > 0);
+            switch (edit.operation()) {
+                case EQUAL -> result.append(first, edit.firstStart(), edit.firstEnd());
+                case INSERT -> result.append(second, edit.secondStart(), edit.secondEnd());
+                default -> { }
+            }
+            position = edit.firstEnd();
+        }
+        assertEquals(first.length(), position);
+        assertEquals(second, result.toString());
+        return edits;
+    }
+
+    private static int changed(List<MyersDiff.Edit> edits, MyersDiff.Operation operation) {
+        int total = 0;
+        for (MyersDiff.Edit edit : edits) {
+            if (edit.operation() == operation) {
+                total += edit.length();
+            }
+        }
+        return total;
+    }
+
+    private static List<Integer> distinctPositions(Random random, int length, int count) {
+        List<Integer> positions = new ArrayList<>(length);
+        for (int i = 0; i < length; ++i) {
+            positions.add(i);
+        }
+        Collections.shuffle(positions, random);
+        return positions.subList(0, count);
+    }
+
+    private static String randomText(Random random, int length, char from, char to) {
+        char[] text = new char[length];
+        for (int i = 0; i < length; ++i) {
+            text[i] = (char) (from + random.nextInt(to - from + 1));
+        }
+        return new String(text);
+    }
+}
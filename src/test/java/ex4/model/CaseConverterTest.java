@@ -0,0 +1,78 @@
+package ex4.model;
+
+import common.Rope;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Результат CaseConverter должен совпадать со String.toLowerCase/toUpperCase для любой строки.
+class CaseConverterTest {
+    private static final String ASCII = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 .,";
+    private static final String CYRILLIC = "абвгдеёжзийклмнопрстуфхцчшщъыьэюяАБВГДЕЁЖЗИЙКЛМНОПРСТУФХЦЧШЩЪЫЬЭЮЯ ";
+    private static final String LATIN1 = "ÀÉÎÕÜàéîõüñ×÷µßÿ";
+    private static final String EXTENDED = "ЀЂЄІЇЎЏѐђєіїўџĀāŒœΣσςİı";
+
+    private final CaseConverter converter = new CaseConverter();
+
+    @Test
+    void everyCharacterUpToCyrillicBlock() {
+        for (char c = 0; c <= 0x4FF; ++c) {
+            check(String.valueOf(c));
+            check("a" + c + "Я");
+        }
+    }
+
+    @Test
+    void randomStrings() {
+        Random random = new Random(1);
+        String[] alphabets = {ASCII, CYRILLIC, ASCII + CYRILLIC, ASCII + CYRILLIC + LATIN1, CYRILLIC + EXTENDED};
+        for (int i = 0; i < 2_000; ++i) {
+            String alphabet = alphabets[i % alphabets.length];
+            check(text(random, alphabet, random.nextInt(200)));
+        }
+    }
+
+    @Test
+    void lengthChangingCharacters() {
+        check("Straße ﬁnal ÿ Ёлка");
+    }
+
+    // Конечная сигма зависит от следующей буквы, поэтому окно нельзя обрывать внутри слова.
+    @Test
+    void longTextWithoutSpacesIsNotSplitInsideWords() throws IOException {
+        Random random = new Random(2);
+        checkChunked(text(random, "ΣσΑα", 40_000));
+        checkChunked(text(random, "ΣσΑα ", 40_000));
+        checkChunked("абв ".repeat(5_000) + "ΑΣ".repeat(20_000) + " ΑΣ");
+    }
+
+    private void check(String text) {
+        Locale locale = Locale.getDefault();
+        CaseConverter.Result result = converter.convert(text);
+        assertEquals(text.toLowerCase(locale), result.lower(), text);
+        assertEquals(text.toUpperCase(locale), result.upper(), text);
+    }
+
+    private void checkChunked(String text) throws IOException {
+        StringWriter lower = new StringWriter();
+        StringWriter upper = new StringWriter();
+        converter.convert(Rope.of(text), lower, upper);
+
+        Locale locale = Locale.getDefault();
+        assertEquals(text.toLowerCase(locale), lower.toString());
+        assertEquals(text.toUpperCase(locale), upper.toString());
+    }
+
+    private static String text(Random random, String alphabet, int length) {
+        char[] text = new char[length];
+        for (int i = 0; i < length; ++i) {
+            text[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(text);
+    }
+}
@@ -0,0 +1,34 @@
+package ex4.model;
+
+import common.BulkLoader;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LinePipelineTest {
+    // Row.values() передается в INSERT и LOAD DATA по порядку столбцов шаблона таблицы.
+    @Test
+    void rowFollowsTableBlueprint() {
+        List<String> components = new ArrayList<>();
+        for (RecordComponent component : LinePipeline.Row.class.getRecordComponents()) {
+            components.add(component.getName().replaceAll("([A-Z])", "_$1").toLowerCase());
+        }
+
+        assertEquals(StringMethods.STRING_TABLE_BLUEPRINT.columnList(), components);
+    }
+
+    @Test
+    void adjacentLoadsAreMerged() {
+        LinePipeline.Report report = new LinePipeline.Report(17_000, 17_000, 1, List.of(
+            new BulkLoader.Loaded(0, 1, 10_000),
+            new BulkLoader.Loaded(10_000, 10_001, 5_000),
+            new BulkLoader.Loaded(15_000, 20_006, 2_000)
+        ));
+
+        assertEquals("1-15000, 20006-22005", report.idRanges());
+    }
+}